@@ -0,0 +1,176 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+// Working durations against one calendar, for many start and end pairs or between every start and every end of
+// two sets. Pair times are nanoseconds since 1970-01-01T00:00 in the calendar's local time, as from addBusinessTime
+// with TimeUnit.NANOSECONDS. Each end of a pair is mapped to business time through the calendar's epoch index, and
+// the time-of-day part, clamping to every shift and summing the overlaps, runs as a batch kernel.
+//
+// With the jdk.incubator.vector module added (--add-modules jdk.incubator.vector) the kernel processes a vector of
+// pairs at a time, otherwise it falls back to a scalar loop. Like toBusinessEpoch, results follow the merged
+// shifts of the calendar and do not apply a minimumDurationPerDay.
+public class BusinessBatchCalculator {
+    private static final IntradayKernel PREFERRED_KERNEL = loadKernel();
+    private static final int BLOCK_SIZE = 1024;
+
+    private final BusinessHoursCalculator calculator;
+    private final IntradayKernel kernel;
+    private final int shiftsPerDay;
+    private final long[] shiftStarts;
+    private final long[] shiftEnds;
+
+    public BusinessBatchCalculator(BusinessHoursCalculator calculator) {
+        this(calculator, PREFERRED_KERNEL);
+    }
+
+    BusinessBatchCalculator(BusinessHoursCalculator calculator, IntradayKernel kernel) {
+        this.calculator = calculator;
+        this.kernel = kernel;
+        BusinessTimeline timeline = calculator.getTimeline();
+        int shiftsPerDay = 1;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            shiftsPerDay = Math.max(shiftsPerDay, timeline.getShifts(day).length / 2);
+        }
+        this.shiftsPerDay = shiftsPerDay;
+        // Padding shifts are empty, so they add nothing to any lane
+        this.shiftStarts = new long[7 * shiftsPerDay];
+        this.shiftEnds = new long[7 * shiftsPerDay];
+        for (DayOfWeek day : DayOfWeek.values()) {
+            long[] shifts = timeline.getShifts(day);
+            int base = BusinessTimeline.index(day) * shiftsPerDay;
+            for (int k = 0; k < shifts.length / 2; k++) {
+                shiftStarts[base + k] = shifts[2 * k];
+                shiftEnds[base + k] = shifts[2 * k + 1];
+            }
+        }
+    }
+
+    public BusinessHoursCalculator getCalculator() {
+        return calculator;
+    }
+
+    public boolean isVectorised() {
+        return kernel instanceof VectorIntradayKernel;
+    }
+
+    // Business nanoseconds between each startTimes[i] and endTimes[i]
+    public long[] calculateWorkingNanosBetween(long[] startTimes, long[] endTimes) {
+        if (startTimes.length != endTimes.length) {
+            throw new IllegalArgumentException("startTimes and endTimes must be the same length.");
+        }
+        BusinessEpochIndex index = calculator.getEpochIndex();
+        long[] result = new long[startTimes.length];
+        int[] days = new int[BLOCK_SIZE];
+        long[] nanoOfDay = new long[BLOCK_SIZE];
+        long[] intraday = new long[BLOCK_SIZE];
+        long[] dayStarts = new long[BLOCK_SIZE];
+        for (int from = 0; from < startTimes.length; from += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, startTimes.length - from);
+            for (int i = 0; i < length; i++) {
+                if (startTimes[from + i] > endTimes[from + i]) {
+                    throw new IllegalArgumentException("startDateTime must be before endDateTime.");
+                }
+            }
+            mapBlock(index, startTimes, from, length, days, nanoOfDay, intraday, dayStarts);
+            for (int i = 0; i < length; i++) {
+                result[from + i] = -(dayStarts[i] + intraday[i]);
+            }
+            mapBlock(index, endTimes, from, length, days, nanoOfDay, intraday, dayStarts);
+            for (int i = 0; i < length; i++) {
+                result[from + i] += dayStarts[i] + intraday[i];
+            }
+        }
+        return result;
+    }
+
+    // Business nanoseconds from every start to every end, row by row, negative where the end comes first
+    public long[] calculateWorkingNanosMatrix(List<LocalDateTime> starts, List<LocalDateTime> ends) {
+        if ((long) starts.size() * ends.size() > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("The matrix is too large for one array, use forEachMatrixRow instead.");
+        }
+        long[] matrix = new long[starts.size() * ends.size()];
+        forEachMatrixRow(starts, ends, (row, index) -> System.arraycopy(row, 0, matrix, index * row.length, row.length));
+        return matrix;
+    }
+
+    // Hands the consumer each row of the matrix along with its start index. The row array is reused, so copy it
+    // to keep it. Both sets are mapped onto the business epoch in one ordered sweep and every entry is then a
+    // subtraction; calendars the compiled timeline can't answer for are worked out pair by pair instead.
+    public void forEachMatrixRow(List<LocalDateTime> starts, List<LocalDateTime> ends, ObjIntConsumer<long[]> rowConsumer) {
+        long[] row = new long[ends.size()];
+        long[][] epochs = sweepBusinessEpochs(starts, ends);
+        for (int i = 0; i < starts.size(); i++) {
+            for (int j = 0; j < row.length; j++) {
+                if (epochs != null) {
+                    row[j] = epochs[1][j] - epochs[0][i];
+                } else if (starts.get(i).isAfter(ends.get(j))) {
+                    row[j] = -calculator.calculateWorkingDurationBetween(ends.get(j), starts.get(i)).toNanos();
+                } else {
+                    row[j] = calculator.calculateWorkingDurationBetween(starts.get(i), ends.get(j)).toNanos();
+                }
+            }
+            rowConsumer.accept(row, i);
+        }
+    }
+
+    // Business epochs of the starts and of the ends, or null when they can't stand in for the calculator
+    private long[][] sweepBusinessEpochs(List<LocalDateTime> starts, List<LocalDateTime> ends) {
+        BusinessTimeline timeline = calculator.getTimeline();
+        if (!timeline.isExact() || timeline.getWeekNanos() == 0) {
+            return null;
+        }
+        LocalDateTime[] points = new LocalDateTime[starts.size() + ends.size()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = i < starts.size() ? starts.get(i) : ends.get(i - starts.size());
+            if (!BusinessHoursCalculator.fitsBusinessEpoch(points[i].toLocalDate().toEpochDay(), 0)) {
+                return null;
+            }
+        }
+        Integer[] order = new Integer[points.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing(i -> points[i]));
+        // In time order the cursor only ever moves forward
+        BusinessHoursCursor cursor = new BusinessHoursCursor(calculator);
+        long[][] epochs = {new long[starts.size()], new long[ends.size()]};
+        for (int i : order) {
+            long epoch = cursor.toBusinessEpoch(points[i]);
+            if (i < starts.size()) {
+                epochs[0][i] = epoch;
+            } else {
+                epochs[1][i - starts.size()] = epoch;
+            }
+        }
+        return epochs;
+    }
+
+    private void mapBlock(BusinessEpochIndex index, long[] times, int from, int length, int[] days, long[] nanoOfDay, long[] intraday, long[] dayStarts) {
+        for (int i = 0; i < length; i++) {
+            long epochDay = Math.floorDiv(times[from + i], BusinessTimeline.NANOS_PER_DAY);
+            nanoOfDay[i] = Math.floorMod(times[from + i], BusinessTimeline.NANOS_PER_DAY);
+            // 1970-01-01 was a Thursday, index 3 counting from Monday
+            days[i] = (int) Math.floorMod(epochDay + 3, 7);
+            dayStarts[i] = index.nanosBefore(epochDay);
+            if (index.isHoliday(epochDay)) {
+                nanoOfDay[i] = 0;
+            }
+        }
+        kernel.businessNanosToTimeOfDay(shiftStarts, shiftEnds, shiftsPerDay, days, nanoOfDay, intraday, length);
+    }
+
+    private static IntradayKernel loadKernel() {
+        try {
+            IntradayKernel kernel = new VectorIntradayKernel();
+            // Make sure the vector classes really link before relying on them
+            kernel.businessNanosToTimeOfDay(new long[1], new long[1], 1, new int[1], new long[1], new long[1], 1);
+            return kernel;
+        } catch (LinkageError e) {
+            return new ScalarIntradayKernel();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// Flight Recorder event for calculations that ran past the calculator's time or days-scanned thresholds,
+// or were stopped by its maximumDaysScanned guard
+@Name("nz.co.beyondthebox.business_hours_calc.BusinessCalculation")
+@Label("Business Hours Calculation")
+@Category("Business Hours")
+@Description("A slow or long running business hours calculation")
+class BusinessCalculationEvent extends jdk.jfr.Event {
+    @Label("Calendar")
+    String calendar;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Start Date Time")
+    String startDateTime;
+
+    @Label("End Date Time")
+    String endDateTime;
+
+    @Label("Business Duration")
+    String businessDuration;
+
+    @Label("Minimum Duration Per Day")
+    String minimumDurationPerDay;
+
+    @Label("Days Scanned")
+    long daysScanned;
+
+    @Label("Aborted")
+    @Description("The calculation was stopped by the maximum days scanned guard")
+    boolean aborted;
+}
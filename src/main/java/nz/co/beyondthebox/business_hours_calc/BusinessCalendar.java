@@ -0,0 +1,110 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// A calendar whose business week changes over time. Each BusinessWeek applies from its effective date until
+// the next one takes over, and is served by its own BusinessHoursCalculator so every segment keeps its
+// compiled fast paths. All segments share the same holidays.
+public class BusinessCalendar {
+    private final BusinessHolidayStore holidayStore;
+    private volatile NavigableMap<LocalDate, BusinessHoursCalculator> segments;
+
+    public BusinessCalendar(BusinessWeek businessWeek) {
+        this(businessWeek, new BusinessHolidayStore());
+    }
+
+    public BusinessCalendar(BusinessWeek businessWeek, Set<LocalDate> holidays) {
+        this(businessWeek, new BusinessHolidayStore(holidays));
+    }
+
+    public BusinessCalendar(BusinessWeek businessWeek, BusinessHolidayStore holidayStore) {
+        this.holidayStore = holidayStore;
+        TreeMap<LocalDate, BusinessHoursCalculator> initial = new TreeMap<>();
+        initial.put(LocalDate.MIN, new BusinessHoursCalculator(businessWeek, holidayStore));
+        this.segments = Collections.unmodifiableNavigableMap(initial);
+    }
+
+    // The week applies from the start of effectiveFrom, replacing any week already effective from that date
+    public synchronized BusinessCalendar addWeek(LocalDate effectiveFrom, BusinessWeek businessWeek) {
+        TreeMap<LocalDate, BusinessHoursCalculator> updated = new TreeMap<>(segments);
+        updated.put(effectiveFrom, new BusinessHoursCalculator(businessWeek, holidayStore));
+        segments = Collections.unmodifiableNavigableMap(updated);
+        return this;
+    }
+
+    public BusinessHolidayStore getHolidayStore() {
+        return holidayStore;
+    }
+
+    public NavigableSet<LocalDate> getEffectiveDates() {
+        return segments.navigableKeySet();
+    }
+
+    public BusinessHoursCalculator getCalculator(LocalDate date) {
+        return segments.floorEntry(date).getValue();
+    }
+
+    public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration) {
+        return addBusinessHours(startDateTime, duration, null);
+    }
+
+    public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration, Duration minimumDurationPerDay) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("duration must be a positive number.");
+        }
+        NavigableMap<LocalDate, BusinessHoursCalculator> segments = this.segments;
+        LocalDateTime current = startDateTime;
+        Map.Entry<LocalDate, BusinessHoursCalculator> segment = segments.floorEntry(current.toLocalDate());
+        while (true) {
+            BusinessHoursCalculator calculator = segment.getValue();
+            Map.Entry<LocalDate, BusinessHoursCalculator> next = segments.higherEntry(segment.getKey());
+            if (next == null) {
+                return calculator.addBusinessHours(current, duration, minimumDurationPerDay);
+            }
+
+            // Use up what this segment has before its successor takes over
+            LocalDateTime boundary = next.getKey().atStartOfDay();
+            if (duration.isZero()) {
+                LocalDateTime result = calculator.addBusinessHours(current, duration, minimumDurationPerDay);
+                if (result.isBefore(boundary)) {
+                    return result;
+                }
+            } else {
+                Duration available = calculator.calculateWorkingDurationBetween(current, boundary, minimumDurationPerDay);
+                if (duration.compareTo(available) <= 0) {
+                    return calculator.addBusinessHours(current, duration, minimumDurationPerDay);
+                }
+                duration = duration.minus(available);
+            }
+            current = boundary;
+            segment = next;
+        }
+    }
+
+    public Duration calculateWorkingDurationBetween(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return calculateWorkingDurationBetween(startDateTime, endDateTime, null);
+    }
+
+    public Duration calculateWorkingDurationBetween(LocalDateTime startDateTime, LocalDateTime endDateTime, Duration minimumDurationPerDay) {
+        if (startDateTime.isAfter(endDateTime)) {
+            throw new IllegalArgumentException("startDateTime must be before endDateTime.");
+        }
+        NavigableMap<LocalDate, BusinessHoursCalculator> segments = this.segments;
+        Duration total = Duration.ZERO;
+        LocalDateTime current = startDateTime;
+        Map.Entry<LocalDate, BusinessHoursCalculator> segment = segments.floorEntry(current.toLocalDate());
+        while (current.isBefore(endDateTime)) {
+            Map.Entry<LocalDate, BusinessHoursCalculator> next = segments.higherEntry(segment.getKey());
+            LocalDateTime segmentEnd = next == null || next.getKey().atStartOfDay().isAfter(endDateTime)
+                    ? endDateTime
+                    : next.getKey().atStartOfDay();
+            total = total.plus(segment.getValue().calculateWorkingDurationBetween(current, segmentEnd, minimumDurationPerDay));
+            current = segmentEnd;
+            segment = next;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,173 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+// Compact binary form of a BusinessHoursCalculator: its name, the shifts of each business day exactly as they
+// were given, and the current holidays. Shift times are stored as whole seconds where possible and holidays as
+// gaps between epoch days, all as variable length integers, so a typical calendar takes around a hundred bytes.
+//
+// Decoded calendars are cached by content, so the same calendar arriving again skips parsing and compiling. Only
+// the parts that never change are cached: the business days, the compiled timeline, the holiday snapshot and
+// its epoch index. Every decode gets a new calculator with a holiday store of its own, so changes made to one
+// are never seen by another. Year indexes are kept per calculator, as they follow its own holiday versions.
+final class BusinessCalendarCodec {
+    static final int FORMAT_VERSION = 1;
+    private static final int CACHE_SIZE = 256;
+
+    private static final class Decoded {
+        private final String name;
+        private final Map<DayOfWeek, BusinessDay> businessDays;
+        private final BusinessTimeline timeline;
+        private final BusinessHolidaySnapshot holidays;
+        private final BusinessEpochIndex epochIndex;
+
+        private Decoded(String name, Map<DayOfWeek, BusinessDay> businessDays, TreeSet<LocalDate> holidays) {
+            this.name = name;
+            this.businessDays = Collections.unmodifiableMap(businessDays);
+            this.timeline = BusinessTimeline.compile(businessDays);
+            this.holidays = new BusinessHolidaySnapshot(0, holidays);
+            this.epochIndex = new BusinessEpochIndex(timeline, this.holidays);
+        }
+
+        private BusinessHoursCalculator newCalculator() {
+            return new BusinessHoursCalculator(businessDays, timeline.withoutYearIndexes(), new BusinessHolidayStore(holidays), epochIndex)
+                    .setCalendarName(name);
+        }
+    }
+
+    private static final Map<ByteBuffer, Decoded> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Decoded> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private BusinessCalendarCodec() {
+    }
+
+    static byte[] encode(BusinessHoursCalculator calculator) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(calculator.getCalendarName());
+            Map<DayOfWeek, BusinessDay> businessDays = calculator.getBusinessDays();
+            int dayMask = 0;
+            for (DayOfWeek day : businessDays.keySet()) {
+                dayMask |= 1 << BusinessTimeline.index(day);
+            }
+            out.writeByte(dayMask);
+            for (DayOfWeek day : DayOfWeek.values()) {
+                BusinessDay businessDay = businessDays.get(day);
+                if (businessDay == null) {
+                    continue;
+                }
+                writeVarLong(out, businessDay.getShifts().size());
+                for (BusinessShift shift : businessDay.getShifts()) {
+                    writeTime(out, shift.getStartTime());
+                    writeTime(out, shift.getEndTime());
+                }
+            }
+            NavigableSet<LocalDate> holidays = calculator.getHolidayStore().getSnapshot().getHolidays();
+            writeVarLong(out, holidays.size());
+            boolean first = true;
+            long previous = 0;
+            for (LocalDate holiday : holidays) {
+                // Zig-zag the first day so dates before 1970 stay short too, after that the gaps are positive
+                long epochDay = holiday.toEpochDay();
+                writeVarLong(out, first ? epochDay << 1 ^ epochDay >> 63 : epochDay - previous);
+                first = false;
+                previous = epochDay;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static BusinessHoursCalculator decode(byte[] encoded) {
+        ByteBuffer key = ByteBuffer.wrap(encoded.clone());
+        Decoded decoded;
+        synchronized (CACHE) {
+            decoded = CACHE.get(key);
+        }
+        if (decoded == null) {
+            decoded = read(encoded);
+            synchronized (CACHE) {
+                Decoded raced = CACHE.putIfAbsent(key, decoded);
+                decoded = raced != null ? raced : decoded;
+            }
+        }
+        return decoded.newCalculator();
+    }
+
+    private static Decoded read(byte[] encoded) {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        try {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported calendar format version " + version + ".");
+            }
+            String name = in.readUTF();
+            int dayMask = in.readUnsignedByte();
+            Map<DayOfWeek, BusinessDay> businessDays = new HashMap<>();
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if ((dayMask & 1 << BusinessTimeline.index(day)) == 0) {
+                    continue;
+                }
+                BusinessDay businessDay = new BusinessDay();
+                for (long shifts = readVarLong(in); shifts > 0; shifts--) {
+                    businessDay.addShift(new BusinessShift(readTime(in), readTime(in)));
+                }
+                businessDays.put(day, businessDay);
+            }
+            TreeSet<LocalDate> holidays = new TreeSet<>();
+            long epochDay = 0;
+            for (long count = readVarLong(in), i = 0; i < count; i++) {
+                long value = readVarLong(in);
+                epochDay = i == 0 ? value >>> 1 ^ -(value & 1) : epochDay + value;
+                holidays.add(LocalDate.ofEpochDay(epochDay));
+            }
+            return new Decoded(name, businessDays, holidays);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("The encoded calendar is truncated.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Whole seconds are stored shifted left with a clear low bit, anything finer as nanoseconds with it set
+    private static void writeTime(DataOutput out, LocalTime time) throws IOException {
+        writeVarLong(out, time.getNano() == 0 ? (long) time.toSecondOfDay() << 1 : time.toNanoOfDay() << 1 | 1);
+    }
+
+    private static LocalTime readTime(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        return (value & 1) == 0 ? LocalTime.ofSecondOfDay(value >>> 1) : LocalTime.ofNanoOfDay(value >>> 1);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("The encoded calendar has a malformed number.");
+    }
+}
@@ -0,0 +1,140 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+// Evaluates one start and duration against many candidate calendars and ranks them by completion time.
+//
+// No calendar can get through more than its week's business time in any seven days, so one needing more than n
+// whole weeks of it can't finish until more than 7n days after the start. Candidates are evaluated in order of
+// that bound, and once enough completions are known the remaining calendars whose bound isn't earlier than the
+// last of them are pruned without being evaluated. Large candidate sets are evaluated in parallel waves.
+public class BusinessCalendarFanOut<K> {
+    // Below this many candidates waves are evaluated on the calling thread
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    private static final class Candidate<K> {
+        private final K key;
+        private final BusinessHoursCalculator calculator;
+        private final LocalDateTime bound;
+
+        private Candidate(K key, BusinessHoursCalculator calculator, LocalDateTime bound) {
+            this.key = key;
+            this.calculator = calculator;
+            this.bound = bound;
+        }
+    }
+
+    private final ConcurrentMap<K, BusinessHoursCalculator> calendars = new ConcurrentHashMap<>();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder pruned = new LongAdder();
+    private volatile int waveSize = Runtime.getRuntime().availableProcessors();
+
+    public BusinessCalendarFanOut<K> addCalendar(K key, BusinessHoursCalculator calculator) {
+        calendars.put(key, calculator);
+        return this;
+    }
+
+    public BusinessCalendarFanOut<K> removeCalendar(K key) {
+        calendars.remove(key);
+        return this;
+    }
+
+    public int size() {
+        return calendars.size();
+    }
+
+    // Calendars evaluated in parallel at a time, when there are enough of them
+    public BusinessCalendarFanOut<K> setWaveSize(int waveSize) {
+        if (waveSize <= 0) {
+            throw new IllegalArgumentException("waveSize must be a positive number.");
+        }
+        this.waveSize = waveSize;
+        return this;
+    }
+
+    public long getEvaluatedCount() {
+        return evaluated.sum();
+    }
+
+    public long getPrunedCount() {
+        return pruned.sum();
+    }
+
+    // The calendar that finishes first, or null when none of them can
+    public BusinessHoursCompletion<K> earliest(LocalDateTime startDateTime, Duration duration) {
+        List<BusinessHoursCompletion<K>> ranked = rank(startDateTime, duration, 1);
+        return ranked.isEmpty() ? null : ranked.get(0);
+    }
+
+    // Every calendar with business hours, earliest completion first
+    public List<BusinessHoursCompletion<K>> rank(LocalDateTime startDateTime, Duration duration) {
+        return rank(startDateTime, duration, Integer.MAX_VALUE);
+    }
+
+    // The limit calendars that finish first, earliest first. Calendars with no business hours, or that give up
+    // past their maximumDaysScanned, are left out.
+    public List<BusinessHoursCompletion<K>> rank(LocalDateTime startDateTime, Duration duration, int limit) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("duration must be a positive number.");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be a positive number.");
+        }
+        List<Candidate<K>> candidates = new ArrayList<>();
+        for (Map.Entry<K, BusinessHoursCalculator> entry : calendars.entrySet()) {
+            BusinessTimeline timeline = entry.getValue().getTimeline();
+            if (timeline.getWeekNanos() == 0) {
+                continue;
+            }
+            // The day walk reads the BusinessDays as given, so only exact timelines bound what it can do in a week
+            long weeks = duration.isZero() || !timeline.isExact() ? 0 : (duration.toNanos() - 1) / timeline.getWeekNanos();
+            candidates.add(new Candidate<>(entry.getKey(), entry.getValue(), startDateTime.plusDays(7 * weeks)));
+        }
+        candidates.sort(Comparator.comparing(candidate -> candidate.bound));
+
+        // Kept sorted, and at most limit long
+        List<BusinessHoursCompletion<K>> ranked = new ArrayList<>();
+        int next = 0;
+        while (next < candidates.size()) {
+            if (ranked.size() == limit && !candidates.get(next).bound.isBefore(ranked.get(limit - 1).getDateTime())) {
+                pruned.add(candidates.size() - next);
+                break;
+            }
+            int end = Math.min(candidates.size(), next + (candidates.size() >= PARALLEL_THRESHOLD ? waveSize : 1));
+            List<Candidate<K>> wave = candidates.subList(next, end);
+            List<BusinessHoursCompletion<K>> completions = (wave.size() > 1 ? wave.parallelStream() : wave.stream())
+                    .map(candidate -> evaluate(candidate, startDateTime, duration))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            evaluated.add(wave.size());
+            for (BusinessHoursCompletion<K> completion : completions) {
+                int position = 0;
+                while (position < ranked.size() && !ranked.get(position).getDateTime().isAfter(completion.getDateTime())) {
+                    position++;
+                }
+                if (position < limit) {
+                    ranked.add(position, completion);
+                    if (ranked.size() > limit) {
+                        ranked.remove(limit);
+                    }
+                }
+            }
+            next = end;
+        }
+        return ranked;
+    }
+
+    private BusinessHoursCompletion<K> evaluate(Candidate<K> candidate, LocalDateTime startDateTime, Duration duration) {
+        try {
+            return new BusinessHoursCompletion<>(candidate.key, candidate.calculator.addBusinessHours(startDateTime, duration));
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+}
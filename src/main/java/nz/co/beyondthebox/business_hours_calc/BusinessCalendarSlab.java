@@ -0,0 +1,154 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Packs compiled calendars for many tenants into direct ByteBuffer chunks, so large tenant counts don't leave
+// BusinessWeek, BusinessDay and holiday set graphs on the heap. Tenants are addressed by a dense int id and
+// read back through BusinessCalendarView flyweights, which work on the packed bytes in place.
+//
+// Record layout, all offsets relative to the start of the record:
+//   int       record length in bytes
+//   int       business day flags, bit 0 is Monday
+//   int[7]    seconds of business time per day of the week
+//   int[7]    number of shifts per day of the week
+//   int[]     [start, end) second-of-day pairs, Monday first
+//   int       epoch day of the first holiday bit
+//   int       number of holiday words
+//   long[]    holiday bitmap, one bit per day
+//
+// Replacing a tenant appends a new record; the space used by the old one is not reclaimed.
+public class BusinessCalendarSlab {
+    static final int FLAGS = 4;
+    static final int DAY_SECONDS = 8;
+    static final int SHIFT_COUNTS = DAY_SECONDS + 7 * 4;
+    static final int SHIFTS = SHIFT_COUNTS + 7 * 4;
+
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final int chunkSize;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    // Chunk index in the high half and record offset in the low half, plus one so that zero means absent
+    private volatile long[] locations = new long[64];
+    private int chunkPosition;
+
+    public BusinessCalendarSlab() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public BusinessCalendarSlab(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be a positive number.");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public BusinessCalendarView put(int tenantId, BusinessWeek businessWeek, Collection<LocalDate> holidays) {
+        return put(tenantId, businessWeek.getBusinessDays(), holidays);
+    }
+
+    public synchronized BusinessCalendarView put(int tenantId, Map<DayOfWeek, BusinessDay> businessDays, Collection<LocalDate> holidays) {
+        if (tenantId < 0) {
+            throw new IllegalArgumentException("tenantId must not be negative.");
+        }
+        BusinessTimeline timeline = BusinessTimeline.compile(businessDays);
+        TreeSet<LocalDate> sortedHolidays = new TreeSet<>(holidays);
+
+        int shiftInts = 0;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            for (long nanoOfDay : timeline.getShifts(day)) {
+                if (nanoOfDay % BusinessTimeline.NANOS_PER_SECOND != 0) {
+                    throw new IllegalArgumentException("Shift times must be whole seconds to be stored in a slab.");
+                }
+            }
+            shiftInts += timeline.getShifts(day).length;
+        }
+        long firstHoliday = sortedHolidays.isEmpty() ? 0 : sortedHolidays.first().toEpochDay();
+        long lastHoliday = sortedHolidays.isEmpty() ? -1 : sortedHolidays.last().toEpochDay();
+        int holidayWords = (int) ((lastHoliday - firstHoliday + 64) / 64);
+        int holidayOffset = SHIFTS + shiftInts * 4;
+        int length = holidayOffset + 8 + holidayWords * 8;
+
+        ByteBuffer chunk = allocate(length);
+        int offset = chunkPosition;
+        chunk.putInt(offset, length);
+        int flags = 0;
+        int shiftPosition = offset + SHIFTS;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            int index = BusinessTimeline.index(day);
+            if (timeline.isBusinessDay(day)) {
+                flags |= 1 << index;
+            }
+            long[] shifts = timeline.getShifts(day);
+            chunk.putInt(offset + DAY_SECONDS + index * 4, (int) (timeline.getDayNanos(day) / BusinessTimeline.NANOS_PER_SECOND));
+            chunk.putInt(offset + SHIFT_COUNTS + index * 4, shifts.length / 2);
+            for (long nanoOfDay : shifts) {
+                chunk.putInt(shiftPosition, (int) (nanoOfDay / BusinessTimeline.NANOS_PER_SECOND));
+                shiftPosition += 4;
+            }
+        }
+        chunk.putInt(offset + FLAGS, flags);
+        chunk.putInt(offset + holidayOffset, Math.toIntExact(firstHoliday));
+        chunk.putInt(offset + holidayOffset + 4, holidayWords);
+        long[] words = new long[holidayWords];
+        for (LocalDate holiday : sortedHolidays) {
+            long bit = holiday.toEpochDay() - firstHoliday;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        for (int i = 0; i < holidayWords; i++) {
+            chunk.putLong(offset + holidayOffset + 8 + i * 8, words[i]);
+        }
+        chunkPosition += length;
+
+        long[] locations = this.locations;
+        if (tenantId >= locations.length) {
+            locations = Arrays.copyOf(locations, Math.max(tenantId + 1, locations.length * 2));
+        }
+        locations[tenantId] = ((long) (chunks.length - 1) << 32 | offset) + 1;
+        // Publishes the record written above to readers of the locations
+        this.locations = locations;
+        return new BusinessCalendarView(chunk, offset);
+    }
+
+    // Returns null when nothing has been stored for the tenant
+    public BusinessCalendarView get(int tenantId) {
+        long[] locations = this.locations;
+        if (tenantId < 0 || tenantId >= locations.length || locations[tenantId] == 0) {
+            return null;
+        }
+        long location = locations[tenantId] - 1;
+        return new BusinessCalendarView(chunks[(int) (location >>> 32)], (int) location);
+    }
+
+    public boolean contains(int tenantId) {
+        return get(tenantId) != null;
+    }
+
+    public synchronized long getAllocatedBytes() {
+        long total = 0;
+        for (ByteBuffer chunk : chunks) {
+            total += chunk.capacity();
+        }
+        return total;
+    }
+
+    private ByteBuffer allocate(int length) {
+        ByteBuffer[] chunks = this.chunks;
+        if (chunks.length > 0 && chunkPosition + length <= chunks[chunks.length - 1].capacity()) {
+            return chunks[chunks.length - 1];
+        }
+        // Records larger than a chunk get a chunk of their own
+        ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, length)).order(ByteOrder.nativeOrder());
+        ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+        grown[chunks.length] = chunk;
+        this.chunks = grown;
+        chunkPosition = 0;
+        return chunk;
+    }
+}
@@ -0,0 +1,227 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.nio.ByteBuffer;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static nz.co.beyondthebox.business_hours_calc.BusinessCalendarSlab.*;
+import static nz.co.beyondthebox.business_hours_calc.BusinessTimeline.NANOS_PER_DAY;
+import static nz.co.beyondthebox.business_hours_calc.BusinessTimeline.NANOS_PER_SECOND;
+
+// A flyweight calculator over one calendar record in a BusinessCalendarSlab. Nothing is copied out of the
+// slab; every query reads the packed shifts and holiday bitmap directly. Answers match the compiled paths of
+// BusinessHoursCalculator, without minimumDurationPerDay support.
+public class BusinessCalendarView {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int holidayOffset;
+
+    BusinessCalendarView(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        int shiftCount = 0;
+        for (int day = 0; day < 7; day++) {
+            shiftCount += buffer.getInt(offset + SHIFT_COUNTS + day * 4);
+        }
+        this.holidayOffset = offset + SHIFTS + shiftCount * 8;
+    }
+
+    public boolean isHoliday(LocalDate date) {
+        long bit = date.toEpochDay() - buffer.getInt(holidayOffset);
+        int words = buffer.getInt(holidayOffset + 4);
+        if (bit < 0 || bit >= words * 64L) {
+            return false;
+        }
+        return (buffer.getLong(holidayOffset + 8 + (int) (bit >>> 6) * 8) & 1L << bit) != 0;
+    }
+
+    public boolean isOpen(LocalDateTime dateTime) {
+        if (isHoliday(dateTime.toLocalDate())) {
+            return false;
+        }
+        int day = BusinessTimeline.index(dateTime.getDayOfWeek());
+        long nanoOfDay = dateTime.toLocalTime().toNanoOfDay();
+        int position = shiftPosition(day);
+        for (int i = 0, count = shiftCount(day); i < count; i++, position += 8) {
+            if (nanoOfDay >= buffer.getInt(position) * NANOS_PER_SECOND && nanoOfDay < buffer.getInt(position + 4) * NANOS_PER_SECOND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Duration getWeekDuration() {
+        return Duration.ofSeconds(weekSeconds());
+    }
+
+    public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("duration must be a positive number.");
+        }
+        if (weekSeconds() == 0) {
+            throw new IllegalStateException("The calendar has no business hours.");
+        }
+        if (duration.isZero()) {
+            return moveToBusinessTime(startDateTime);
+        }
+
+        LocalDate date = startDateTime.toLocalDate();
+        long nanos = duration.toNanos();
+        if (!isHoliday(date)) {
+            int day = BusinessTimeline.index(date.getDayOfWeek());
+            long fromNanoOfDay = startDateTime.toLocalTime().toNanoOfDay();
+            long available = nanosBetween(day, fromNanoOfDay, NANOS_PER_DAY);
+            if (nanos <= available) {
+                return date.atStartOfDay().plusNanos(nanoOfDayAfter(day, fromNanoOfDay, nanos));
+            }
+            nanos -= available;
+        }
+
+        date = date.plusDays(1);
+        while (true) {
+            // Skip a week at a time while the duration reaches past it
+            long weekNanos = businessSecondsBetween(date, date.plusDays(7)) * NANOS_PER_SECOND;
+            if (nanos > weekNanos) {
+                nanos -= weekNanos;
+                date = date.plusDays(7);
+                continue;
+            }
+            while (true) {
+                long dayNanos = isHoliday(date) ? 0 : buffer.getInt(offset + DAY_SECONDS + BusinessTimeline.index(date.getDayOfWeek()) * 4) * NANOS_PER_SECOND;
+                if (nanos <= dayNanos) {
+                    return date.atStartOfDay().plusNanos(nanoOfDayAfter(BusinessTimeline.index(date.getDayOfWeek()), 0, nanos));
+                }
+                nanos -= dayNanos;
+                date = date.plusDays(1);
+            }
+        }
+    }
+
+    public Duration calculateWorkingDurationBetween(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        if (startDateTime.isAfter(endDateTime)) {
+            throw new IllegalArgumentException("startDateTime must be before endDateTime.");
+        }
+        LocalDate startDate = startDateTime.toLocalDate();
+        LocalDate endDate = endDateTime.toLocalDate();
+        long startNanoOfDay = startDateTime.toLocalTime().toNanoOfDay();
+        long endNanoOfDay = endDateTime.toLocalTime().toNanoOfDay();
+        if (startDate.equals(endDate)) {
+            return Duration.ofNanos(nanosOnDay(startDate, startNanoOfDay, endNanoOfDay));
+        }
+        return Duration.ofNanos(nanosOnDay(startDate, startNanoOfDay, NANOS_PER_DAY))
+                .plusSeconds(businessSecondsBetween(startDate.plusDays(1), endDate))
+                .plusNanos(nanosOnDay(endDate, 0, endNanoOfDay));
+    }
+
+    // Zero durations move to the next business time the same way the day walk in BusinessHoursCalculator does
+    private LocalDateTime moveToBusinessTime(LocalDateTime startDateTime) {
+        LocalDate date = startDateTime.toLocalDate();
+        long fromNanoOfDay = startDateTime.toLocalTime().toNanoOfDay();
+        int flags = buffer.getInt(offset + FLAGS);
+        while (true) {
+            int day = BusinessTimeline.index(date.getDayOfWeek());
+            if ((flags & 1 << day) != 0 && !isHoliday(date)) {
+                int position = shiftPosition(day);
+                for (int i = 0, count = shiftCount(day); i < count; i++, position += 8) {
+                    if (buffer.getInt(position + 4) * NANOS_PER_SECOND >= fromNanoOfDay) {
+                        return date.atStartOfDay().plusNanos(Math.max(fromNanoOfDay, buffer.getInt(position) * NANOS_PER_SECOND));
+                    }
+                }
+                return date.plusDays(1).atStartOfDay();
+            }
+            date = date.plusDays(1);
+            fromNanoOfDay = 0;
+        }
+    }
+
+    // Business seconds in the whole days from startDate (inclusive) to endDate (exclusive)
+    private long businessSecondsBetween(LocalDate startDate, LocalDate endDate) {
+        long days = endDate.toEpochDay() - startDate.toEpochDay();
+        if (days <= 0) {
+            return 0;
+        }
+        long total = days / 7 * weekSeconds();
+        int day = BusinessTimeline.index(startDate.getDayOfWeek());
+        for (long i = 0; i < days % 7; i++) {
+            total += buffer.getInt(offset + DAY_SECONDS + (int) ((day + i) % 7) * 4);
+        }
+        return total - holidaySecondsBetween(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    // Business seconds lost to holidays from startEpochDay (inclusive) to endEpochDay (exclusive)
+    private long holidaySecondsBetween(long startEpochDay, long endEpochDay) {
+        long firstHoliday = buffer.getInt(holidayOffset);
+        long from = Math.max(startEpochDay, firstHoliday) - firstHoliday;
+        long to = Math.min(endEpochDay - firstHoliday, buffer.getInt(holidayOffset + 4) * 64L);
+        long total = 0;
+        for (long bit = from; bit < to; ) {
+            long word = buffer.getLong(holidayOffset + 8 + (int) (bit >>> 6) * 8) >>> (bit & 63);
+            if (word == 0) {
+                bit = (bit | 63) + 1;
+                continue;
+            }
+            bit += Long.numberOfTrailingZeros(word);
+            if (bit < to) {
+                int day = (int) Math.floorMod(firstHoliday + bit + 3, 7);
+                total += buffer.getInt(offset + DAY_SECONDS + day * 4);
+            }
+            bit++;
+        }
+        return total;
+    }
+
+    private long nanosOnDay(LocalDate date, long fromNanoOfDay, long toNanoOfDay) {
+        return isHoliday(date) ? 0 : nanosBetween(BusinessTimeline.index(date.getDayOfWeek()), fromNanoOfDay, toNanoOfDay);
+    }
+
+    private long nanosBetween(int day, long fromNanoOfDay, long toNanoOfDay) {
+        long total = 0;
+        int position = shiftPosition(day);
+        for (int i = 0, count = shiftCount(day); i < count; i++, position += 8) {
+            long start = Math.max(buffer.getInt(position) * NANOS_PER_SECOND, fromNanoOfDay);
+            long end = Math.min(buffer.getInt(position + 4) * NANOS_PER_SECOND, toNanoOfDay);
+            if (end > start) {
+                total += end - start;
+            }
+        }
+        return total;
+    }
+
+    private long nanoOfDayAfter(int day, long fromNanoOfDay, long nanos) {
+        int position = shiftPosition(day);
+        for (int i = 0, count = shiftCount(day); i < count; i++, position += 8) {
+            long end = buffer.getInt(position + 4) * NANOS_PER_SECOND;
+            if (end < fromNanoOfDay) {
+                continue;
+            }
+            long start = Math.max(buffer.getInt(position) * NANOS_PER_SECOND, fromNanoOfDay);
+            if (nanos <= end - start) {
+                return start + nanos;
+            }
+            nanos -= end - start;
+        }
+        return -1;
+    }
+
+    private long weekSeconds() {
+        long total = 0;
+        for (int day = 0; day < 7; day++) {
+            total += buffer.getInt(offset + DAY_SECONDS + day * 4);
+        }
+        return total;
+    }
+
+    private int shiftCount(int day) {
+        return buffer.getInt(offset + SHIFT_COUNTS + day * 4);
+    }
+
+    private int shiftPosition(int day) {
+        int position = offset + SHIFTS;
+        for (int previous = 0; previous < day; previous++) {
+            position += shiftCount(previous) * 8;
+        }
+        return position;
+    }
+}
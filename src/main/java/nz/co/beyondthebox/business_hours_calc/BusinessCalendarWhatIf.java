@@ -0,0 +1,121 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Works out how open deadlines would move if a proposed calendar replaced the current one. The days of the week
+// whose hours differ and the dates whose holiday status differs are found up front; a ticket is only evaluated
+// against the proposed calendar when its window, from its start to its current deadline, touches one of them,
+// since both calendars accumulate business time identically everywhere else.
+//
+// Tickets are not kept: moved deadlines go to the sink as they are found and the summary only holds counters
+// and a fixed histogram, so any number of tickets can be streamed through, from several threads if need be.
+public class BusinessCalendarWhatIf<K> {
+    // Upper bounds of the histogram buckets for the size of a shift, the last bucket takes everything longer
+    static final Duration[] SHIFT_BUCKETS = {
+            Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofHours(4), Duration.ofDays(1),
+            Duration.ofDays(7), Duration.ofDays(30), Duration.ofDays(365)
+    };
+
+    private final BusinessHoursCalculator current;
+    private final BusinessHoursCalculator proposed;
+    private final Consumer<DeadlineChange<K>> sink;
+    private final boolean[] changedDays = new boolean[7];
+    private final NavigableSet<LocalDate> changedDates = new TreeSet<>();
+    private final LongAdder tickets = new LongAdder();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder earlier = new LongAdder();
+    private final LongAdder later = new LongAdder();
+    private final AtomicLongArray shiftCounts = new AtomicLongArray(SHIFT_BUCKETS.length + 1);
+
+    // Holidays are compared as they stand now, later changes to either calendar's holidays are not picked up
+    public BusinessCalendarWhatIf(BusinessHoursCalculator current, BusinessHoursCalculator proposed, Consumer<DeadlineChange<K>> sink) {
+        this.current = current;
+        this.proposed = proposed;
+        this.sink = sink;
+        Map<DayOfWeek, BusinessDay> currentDays = current.getBusinessDays();
+        Map<DayOfWeek, BusinessDay> proposedDays = proposed.getBusinessDays();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            changedDays[BusinessTimeline.index(day)] = !sameDay(currentDays.get(day), proposedDays.get(day))
+                    || !Arrays.equals(current.getTimeline().getShifts(day), proposed.getTimeline().getShifts(day));
+        }
+        NavigableSet<LocalDate> currentHolidays = current.getHolidayStore().getSnapshot().getHolidays();
+        NavigableSet<LocalDate> proposedHolidays = proposed.getHolidayStore().getSnapshot().getHolidays();
+        for (LocalDate holiday : currentHolidays) {
+            if (!proposedHolidays.contains(holiday)) {
+                changedDates.add(holiday);
+            }
+        }
+        for (LocalDate holiday : proposedHolidays) {
+            if (!currentHolidays.contains(holiday)) {
+                changedDates.add(holiday);
+            }
+        }
+    }
+
+    private static boolean sameDay(BusinessDay currentDay, BusinessDay proposedDay) {
+        if (currentDay == null || proposedDay == null) {
+            return currentDay == proposedDay;
+        }
+        return currentDay.getShifts().equals(proposedDay.getShifts())
+                && currentDay.getBusinessDayLength().equals(proposedDay.getBusinessDayLength());
+    }
+
+    // Whether the calendars could treat any day from startDate to endDate, both included, differently
+    public boolean differsBetween(LocalDate startDate, LocalDate endDate) {
+        if (!changedDates.subSet(startDate, true, endDate, true).isEmpty()) {
+            return true;
+        }
+        long days = Math.min(7, endDate.toEpochDay() - startDate.toEpochDay() + 1);
+        for (long i = 0; i < days; i++) {
+            if (changedDays[BusinessTimeline.index(startDate.plusDays(i).getDayOfWeek())]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void evaluate(K key, LocalDateTime startDateTime, Duration duration) {
+        evaluate(key, startDateTime, duration, current.addBusinessHours(startDateTime, duration));
+    }
+
+    // For tickets whose deadline under the current calendar is already known
+    public void evaluate(K key, LocalDateTime startDateTime, Duration duration, LocalDateTime currentDeadline) {
+        tickets.increment();
+        // A day either side covers shifts that run over midnight
+        if (!differsBetween(startDateTime.toLocalDate().minusDays(1), currentDeadline.toLocalDate().plusDays(1))) {
+            return;
+        }
+        evaluated.increment();
+        LocalDateTime deadline = proposed.addBusinessHours(startDateTime, duration);
+        if (deadline.equals(currentDeadline)) {
+            return;
+        }
+        DeadlineChange<K> change = new DeadlineChange<>(key, currentDeadline, deadline);
+        (deadline.isBefore(currentDeadline) ? earlier : later).increment();
+        shiftCounts.incrementAndGet(bucket(change.getShift().abs()));
+        sink.accept(change);
+    }
+
+    private static int bucket(Duration shift) {
+        int bucket = 0;
+        while (bucket < SHIFT_BUCKETS.length && shift.compareTo(SHIFT_BUCKETS[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    public WhatIfSummary getSummary() {
+        long[] counts = new long[shiftCounts.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = shiftCounts.get(i);
+        }
+        return new WhatIfSummary(tickets.sum(), evaluated.sum(), earlier.sum(), later.sum(), counts);
+    }
+}
@@ -0,0 +1,30 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class BusinessCoverage {
+    private final Duration coveredDuration;
+    private final SortedMap<Integer, Duration> durationByConcurrency;
+
+    public BusinessCoverage(Duration coveredDuration, SortedMap<Integer, Duration> durationByConcurrency) {
+        this.coveredDuration = coveredDuration;
+        this.durationByConcurrency = Collections.unmodifiableSortedMap(new TreeMap<>(durationByConcurrency));
+    }
+
+    // Business time during which at least one interval was open
+    public Duration getCoveredDuration() {
+        return coveredDuration;
+    }
+
+    // Business time during which exactly n intervals were open, keyed by n. Levels with no time are omitted.
+    public SortedMap<Integer, Duration> getDurationByConcurrency() {
+        return durationByConcurrency;
+    }
+
+    public int getMaximumConcurrency() {
+        return durationByConcurrency.isEmpty() ? 0 : durationByConcurrency.lastKey();
+    }
+}
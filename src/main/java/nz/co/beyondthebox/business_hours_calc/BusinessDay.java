@@ -6,15 +6,16 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeSet;
 
+import static nz.co.beyondthebox.business_hours_calc.BusinessTimeline.NANOS_PER_DAY;
+
 public class BusinessDay {
     private final TreeSet<BusinessShift> shifts = new TreeSet<>();
 
     private Duration businessDayLength = Duration.ZERO;
 
     public BusinessDay(BusinessShift... shifts) {
-        this.shifts.addAll(List.of(shifts));
         for (BusinessShift shift : shifts) {
-            addShiftToBusinessDayLength(shift);
+            addShift(shift);
         }
     }
 
@@ -36,23 +37,22 @@ public class BusinessDay {
     }
 
     private void addShiftToBusinessDayLength(BusinessShift shift) {
-        if (shift.getEndTime().isBefore(shift.getStartTime())) {
-            // For shifts that cross midnight, calculate the time duration across the day boundary
-            Duration beforeMidnight = Duration.between(shift.getStartTime(), LocalTime.of(23, 59, 59)).plusSeconds(1);
-            Duration afterMidnight = Duration.between(LocalTime.of(0, 0), shift.getEndTime());
-            businessDayLength = businessDayLength.plus(beforeMidnight).plus(afterMidnight);
-        } else {
-            // For regular shifts that don't cross midnight
-            businessDayLength = businessDayLength.plus(Duration.between(shift.getStartTime(), shift.getEndTime()));
+        long nanos = shift.getEndTime().toNanoOfDay() - shift.getStartTime().toNanoOfDay();
+        if (nanos < 0) {
+            // For shifts that cross midnight, count the time up to midnight as well as the time after it
+            nanos += NANOS_PER_DAY;
         }
+        businessDayLength = businessDayLength.plusNanos(nanos);
     }
 
     public LocalTime getFinalShiftEndTime() {
         return shifts.last().getEndTime();
     }
 
+    // Adding the same shift twice leaves the day unchanged
     public void addShift(BusinessShift shift) {
-        shifts.add(shift);
-        addShiftToBusinessDayLength(shift);
+        if (shifts.add(shift)) {
+            addShiftToBusinessDayLength(shift);
+        }
     }
 }
@@ -0,0 +1,221 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+// Recomputes large numbers of deadlines in parallel. Submitted deadlines are grouped into batches by calculator,
+// so a worker keeps one calendar's timeline and year indexes hot while it works through a batch, and batches
+// are spread over a work-stealing ForkJoinPool. Deadlines that moved are handed to the sink on worker threads.
+//
+// At most maximumPending deadlines are in flight between submit and the sink returning, so a slow sink holds
+// back submitters rather than letting results pile up.
+public class BusinessDeadlineRecomputer<K> implements AutoCloseable {
+    // Batches larger than this are split so idle workers can steal half of a busy calendar
+    private static final int SPLIT_SIZE = 256;
+    // How long a blocked submitter waits for a permit before flushing again
+    private static final long FLUSH_INTERVAL_MILLIS = 10;
+
+    private static final class Ticket<K> {
+        private final K key;
+        private final LocalDateTime startDateTime;
+        private final Duration duration;
+        private final LocalDateTime previousDeadline;
+
+        private Ticket(K key, LocalDateTime startDateTime, Duration duration, LocalDateTime previousDeadline) {
+            this.key = key;
+            this.startDateTime = startDateTime;
+            this.duration = duration;
+            this.previousDeadline = previousDeadline;
+        }
+    }
+
+    private final class Batch extends RecursiveAction {
+        private final BusinessHoursCalculator calculator;
+        private final List<Ticket<K>> tickets;
+
+        private Batch(BusinessHoursCalculator calculator, List<Ticket<K>> tickets) {
+            this.calculator = calculator;
+            this.tickets = tickets;
+        }
+
+        @Override
+        protected void compute() {
+            if (tickets.size() > SPLIT_SIZE) {
+                int middle = tickets.size() / 2;
+                invokeAll(new Batch(calculator, tickets.subList(0, middle)), new Batch(calculator, tickets.subList(middle, tickets.size())));
+                return;
+            }
+            for (Ticket<K> ticket : tickets) {
+                try {
+                    recompute(calculator, ticket);
+                } finally {
+                    ticketCompleted();
+                }
+            }
+            reportProgress();
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final Consumer<DeadlineChange<K>> sink;
+    private final Semaphore pending;
+    private final Map<BusinessHoursCalculator, List<Ticket<K>>> openBatches = new IdentityHashMap<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder changed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Object completion = new Object();
+    private volatile long startNanos;
+    private volatile BiConsumer<K, RuntimeException> failureListener = (key, exception) -> { };
+    private volatile Consumer<RecomputeProgress> progressListener = progress -> { };
+
+    public BusinessDeadlineRecomputer(Consumer<DeadlineChange<K>> sink) {
+        this(Runtime.getRuntime().availableProcessors(), 64, 100_000, sink);
+    }
+
+    public BusinessDeadlineRecomputer(int parallelism, int batchSize, int maximumPending, Consumer<DeadlineChange<K>> sink) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be a positive number.");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be a positive number.");
+        }
+        if (maximumPending <= 0) {
+            throw new IllegalArgumentException("maximumPending must be a positive number.");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.batchSize = batchSize;
+        this.sink = sink;
+        this.pending = new Semaphore(maximumPending);
+    }
+
+    // Called on the worker thread with any exception thrown while recomputing a deadline or passing it to the sink
+    public BusinessDeadlineRecomputer<K> setFailureListener(BiConsumer<K, RuntimeException> failureListener) {
+        this.failureListener = failureListener;
+        return this;
+    }
+
+    // Called on a worker thread each time a batch finishes
+    public BusinessDeadlineRecomputer<K> setProgressListener(Consumer<RecomputeProgress> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    // Blocks while maximumPending deadlines are already in flight. previousDeadline may be null, in which case
+    // the recomputed deadline is always passed to the sink.
+    public void submit(BusinessHoursCalculator calculator, K key, LocalDateTime startDateTime, Duration duration,
+                       LocalDateTime previousDeadline) throws InterruptedException {
+        if (!pending.tryAcquire()) {
+            // Partly filled batches may be holding the permits we are waiting for, and other submitters can open
+            // new ones after any flush, so keep flushing until a permit comes free
+            do {
+                flush();
+            } while (!pending.tryAcquire(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+        }
+        if (submitted.getAndIncrement() == 0) {
+            startNanos = System.nanoTime();
+        }
+        List<Ticket<K>> full = null;
+        synchronized (openBatches) {
+            List<Ticket<K>> batch = openBatches.computeIfAbsent(calculator, c -> new ArrayList<>(batchSize));
+            batch.add(new Ticket<>(key, startDateTime, duration, previousDeadline));
+            if (batch.size() >= batchSize) {
+                full = openBatches.remove(calculator);
+            }
+        }
+        if (full != null) {
+            pool.execute(new Batch(calculator, full));
+        }
+    }
+
+    // Starts work on every partly filled batch
+    public void flush() {
+        Map<BusinessHoursCalculator, List<Ticket<K>>> batches;
+        synchronized (openBatches) {
+            batches = new IdentityHashMap<>(openBatches);
+            openBatches.clear();
+        }
+        batches.forEach((calculator, tickets) -> pool.execute(new Batch(calculator, tickets)));
+    }
+
+    // Flushes, then waits for every deadline submitted so far to be recomputed
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        flush();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (completion) {
+            while (completed.sum() < submitted.get()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(completion, remaining);
+            }
+        }
+        return true;
+    }
+
+    public RecomputeProgress getProgress() {
+        long submitted = this.submitted.get();
+        Duration elapsed = submitted == 0 ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - startNanos);
+        return new RecomputeProgress(submitted, completed.sum(), changed.sum(), failed.sum(), elapsed);
+    }
+
+    // Finishes the submitted work before shutting the workers down
+    @Override
+    public void close() throws InterruptedException {
+        awaitCompletion(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        pool.shutdown();
+    }
+
+    private void recompute(BusinessHoursCalculator calculator, Ticket<K> ticket) {
+        LocalDateTime deadline;
+        try {
+            deadline = calculator.addBusinessHours(ticket.startDateTime, ticket.duration);
+        } catch (RuntimeException exception) {
+            fail(ticket.key, exception);
+            return;
+        }
+        if (!deadline.equals(ticket.previousDeadline)) {
+            try {
+                sink.accept(new DeadlineChange<>(ticket.key, ticket.previousDeadline, deadline));
+                changed.increment();
+            } catch (RuntimeException exception) {
+                fail(ticket.key, exception);
+            }
+        }
+    }
+
+    // Neither a failing sink nor a failing listener may stop the rest of the batch, or its tickets would never
+    // complete and their permits would never be released
+    private void fail(K key, RuntimeException exception) {
+        failed.increment();
+        try {
+            failureListener.accept(key, exception);
+        } catch (RuntimeException ignored) {
+        }
+    }
+
+    private void ticketCompleted() {
+        completed.increment();
+        pending.release();
+        if (completed.sum() >= submitted.get()) {
+            synchronized (completion) {
+                completion.notifyAll();
+            }
+        }
+    }
+
+    private void reportProgress() {
+        progressListener.accept(getProgress());
+    }
+}
@@ -0,0 +1,116 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Keeps computed deadlines indexed by the dates between their start and their deadline. When the calendar
+// changes, only deadlines whose window contains a changed date are recomputed and reported.
+public class BusinessDeadlineRegistry<K> implements AutoCloseable {
+    private static final class Deadline<K> {
+        private final K key;
+        private final LocalDateTime startDateTime;
+        private final Duration duration;
+        private LocalDateTime deadline;
+        private DateIntervalTree.Node<Deadline<K>> node;
+
+        private Deadline(K key, LocalDateTime startDateTime, Duration duration) {
+            this.key = key;
+            this.startDateTime = startDateTime;
+            this.duration = duration;
+        }
+    }
+
+    private final BusinessHoursCalculator calculator;
+    private final Map<K, Deadline<K>> deadlines = new HashMap<>();
+    private final DateIntervalTree<Deadline<K>> index = new DateIntervalTree<>();
+    private final List<Consumer<DeadlineChange<K>>> listeners = new CopyOnWriteArrayList<>();
+    private final Consumer<HolidayChange> holidayListener = this::holidaysChanged;
+
+    public BusinessDeadlineRegistry(BusinessHoursCalculator calculator) {
+        this.calculator = calculator;
+        calculator.getHolidayStore().addChangeListener(holidayListener);
+    }
+
+    public synchronized LocalDateTime register(K key, LocalDateTime startDateTime, Duration duration) {
+        unregister(key);
+        Deadline<K> deadline = new Deadline<>(key, startDateTime, duration);
+        deadline.deadline = calculator.addBusinessHours(startDateTime, duration);
+        deadline.node = index.insert(startDateTime.toLocalDate(), deadline.deadline.toLocalDate(), deadline);
+        deadlines.put(key, deadline);
+        return deadline.deadline;
+    }
+
+    public synchronized boolean unregister(K key) {
+        Deadline<K> deadline = deadlines.remove(key);
+        if (deadline == null) {
+            return false;
+        }
+        index.remove(deadline.node);
+        return true;
+    }
+
+    public synchronized LocalDateTime getDeadline(K key) {
+        Deadline<K> deadline = deadlines.get(key);
+        return deadline == null ? null : deadline.deadline;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    // Listeners receive every deadline that moved, on the thread that made the calendar change
+    public void addChangeListener(Consumer<DeadlineChange<K>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<DeadlineChange<K>> listener) {
+        listeners.remove(listener);
+    }
+
+    // Recomputes the deadlines whose window includes any date from fromDate to toDate, for calendar changes
+    // that are not published through the holiday store
+    public List<DeadlineChange<K>> recompute(LocalDate fromDate, LocalDate toDate) {
+        return recompute(fromDate, toDate, null);
+    }
+
+    private void holidaysChanged(HolidayChange change) {
+        recompute(change.getFromDate(), change.getToDate(), change);
+    }
+
+    private synchronized List<DeadlineChange<K>> recompute(LocalDate fromDate, LocalDate toDate, HolidayChange change) {
+        List<Deadline<K>> affected = new ArrayList<>();
+        index.forEachOverlapping(fromDate, toDate, node -> {
+            Deadline<K> deadline = node.getValue();
+            // A change that spans a wide range may still skip over this window entirely
+            if (change == null || change.affects(deadline.startDateTime.toLocalDate(), deadline.deadline.toLocalDate())) {
+                affected.add(deadline);
+            }
+        });
+
+        List<DeadlineChange<K>> changes = new ArrayList<>();
+        for (Deadline<K> deadline : affected) {
+            LocalDateTime previous = deadline.deadline;
+            deadline.deadline = calculator.addBusinessHours(deadline.startDateTime, deadline.duration);
+            if (!deadline.deadline.equals(previous)) {
+                index.remove(deadline.node);
+                deadline.node = index.insert(deadline.startDateTime.toLocalDate(), deadline.deadline.toLocalDate(), deadline);
+                changes.add(new DeadlineChange<>(deadline.key, previous, deadline.deadline));
+            }
+        }
+        for (DeadlineChange<K> deadlineChange : changes) {
+            for (Consumer<DeadlineChange<K>> listener : listeners) {
+                listener.accept(deadlineChange);
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public void close() {
+        calculator.getHolidayStore().removeChangeListener(holidayListener);
+    }
+}
@@ -0,0 +1,77 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// Business nanoseconds from 1970-01-01 to the start of any day, worked out as whole weeks plus a partial week,
+// less the business time lost to each earlier holiday. The holidays are kept as sorted epoch days with running
+// totals of what they removed, so a lookup is a binary search whatever the distance from 1970.
+final class BusinessEpochIndex {
+    private final long version;
+    private final long weekNanos;
+    // Business nanoseconds in the first n days of a week starting on Thursday, as 1970-01-01 did
+    private final long[] weekPrefix = new long[8];
+    private final long[] holidayDays;
+    private final long[] lostBefore;
+    private final long lostBeforeEpoch;
+
+    BusinessEpochIndex(BusinessTimeline timeline, BusinessHolidaySnapshot holidays) {
+        this.version = holidays.getVersion();
+        this.weekNanos = timeline.getWeekNanos();
+        for (int day = 0; day < 7; day++) {
+            weekPrefix[day + 1] = weekPrefix[day] + timeline.getDayNanos(DayOfWeek.THURSDAY.plus(day));
+        }
+        holidayDays = new long[holidays.getHolidays().size()];
+        lostBefore = new long[holidayDays.length + 1];
+        int i = 0;
+        for (LocalDate holiday : holidays.getHolidays()) {
+            holidayDays[i] = holiday.toEpochDay();
+            lostBefore[i + 1] = lostBefore[i] + timeline.getDayNanos(holiday.getDayOfWeek());
+            i++;
+        }
+        lostBeforeEpoch = lostBefore[lowerBound(0)];
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    long getWeekNanos() {
+        return weekNanos;
+    }
+
+    boolean isHoliday(long epochDay) {
+        int position = lowerBound(epochDay);
+        return position < holidayDays.length && holidayDays[position] == epochDay;
+    }
+
+    // Business nanoseconds from the start of 1970-01-01 to the start of epochDay, negative for earlier days
+    long nanosBefore(long epochDay) {
+        long raw = Math.floorDiv(epochDay, 7) * weekNanos + weekPrefix[(int) Math.floorMod(epochDay, 7)];
+        return raw - (lostBefore[lowerBound(epochDay)] - lostBeforeEpoch);
+    }
+
+    // The first day by the end of which businessNanos have been reached, for calendars with business time
+    long dayReaching(long businessNanos) {
+        // Without holidays the day is within a week of what the weeks alone suggest. Each holiday can move it by
+        // at most a week, later for holidays after 1970 and earlier for those before it.
+        long weeks = Math.floorDiv(businessNanos, weekNanos) * 7;
+        long low = weeks - 7 - 7L * holidayDays.length;
+        long high = weeks + 7 + 7L * holidayDays.length;
+        while (low < high) {
+            long middle = low + (high - low) / 2;
+            if (nanosBefore(middle + 1) >= businessNanos) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private int lowerBound(long epochDay) {
+        int position = Arrays.binarySearch(holidayDays, epochDay);
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -0,0 +1,29 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+// An immutable, versioned view of the holidays published by a BusinessHolidayStore
+public class BusinessHolidaySnapshot {
+    private final long version;
+    private final NavigableSet<LocalDate> holidays;
+
+    BusinessHolidaySnapshot(long version, TreeSet<LocalDate> holidays) {
+        this.version = version;
+        this.holidays = Collections.unmodifiableNavigableSet(holidays);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public NavigableSet<LocalDate> getHolidays() {
+        return holidays;
+    }
+
+    public boolean isHoliday(LocalDate date) {
+        return holidays.contains(date);
+    }
+}
@@ -0,0 +1,118 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+// Holds holidays as immutable, versioned snapshots. Readers never lock; every change copies the current
+// set, publishes it atomically under a new version and records which dates were affected. Changes are
+// serialised, so listeners see them in version order.
+public class BusinessHolidayStore {
+    private static final int CHANGE_LOG_SIZE = 256;
+
+    private volatile BusinessHolidaySnapshot snapshot;
+    private volatile List<HolidayChange> changeLog = List.of();
+    private final List<Consumer<HolidayChange>> listeners = new CopyOnWriteArrayList<>();
+
+    public BusinessHolidayStore() {
+        this(Collections.emptySet());
+    }
+
+    public BusinessHolidayStore(Collection<LocalDate> holidays) {
+        this.snapshot = new BusinessHolidaySnapshot(0, new TreeSet<>(holidays));
+    }
+
+    // Starts from a snapshot published elsewhere, which is safe to share as it never changes
+    BusinessHolidayStore(BusinessHolidaySnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public BusinessHolidaySnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    public boolean isHoliday(LocalDate date) {
+        return snapshot.isHoliday(date);
+    }
+
+    public boolean add(LocalDate holiday) {
+        return addAll(List.of(holiday));
+    }
+
+    public synchronized boolean addAll(Collection<LocalDate> holidays) {
+        TreeSet<LocalDate> updated = new TreeSet<>(snapshot.getHolidays());
+        updated.addAll(holidays);
+        return publish(updated);
+    }
+
+    public boolean remove(LocalDate holiday) {
+        return removeAll(List.of(holiday));
+    }
+
+    public synchronized boolean removeAll(Collection<LocalDate> holidays) {
+        TreeSet<LocalDate> updated = new TreeSet<>(snapshot.getHolidays());
+        updated.removeAll(holidays);
+        return publish(updated);
+    }
+
+    public synchronized boolean replaceAll(Collection<LocalDate> holidays) {
+        return publish(new TreeSet<>(holidays));
+    }
+
+    // Listeners are called on the publishing thread, after the new snapshot is visible
+    public void addChangeListener(Consumer<HolidayChange> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<HolidayChange> listener) {
+        listeners.remove(listener);
+    }
+
+    // Returns whether any change published after sinceVersion, up to and including untilVersion, touched a date
+    // between fromDate and toDate. Answers true when the change log no longer reaches back to sinceVersion.
+    public boolean hasChangedBetween(long sinceVersion, long untilVersion, LocalDate fromDate, LocalDate toDate) {
+        if (sinceVersion >= untilVersion) {
+            return false;
+        }
+        List<HolidayChange> changeLog = this.changeLog;
+        if (changeLog.isEmpty() || changeLog.get(0).getVersion() > sinceVersion + 1) {
+            return true;
+        }
+        for (HolidayChange change : changeLog) {
+            if (change.getVersion() > sinceVersion && change.getVersion() <= untilVersion && change.affects(fromDate, toDate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean publish(TreeSet<LocalDate> updated) {
+        NavigableSet<LocalDate> current = snapshot.getHolidays();
+        TreeSet<LocalDate> changed = new TreeSet<>(updated);
+        changed.removeAll(current);
+        for (LocalDate date : current) {
+            if (!updated.contains(date)) {
+                changed.add(date);
+            }
+        }
+        if (changed.isEmpty()) {
+            return false;
+        }
+
+        HolidayChange change = new HolidayChange(snapshot.getVersion() + 1, changed);
+        List<HolidayChange> updatedLog = new ArrayList<>(changeLog.subList(Math.max(0, changeLog.size() - CHANGE_LOG_SIZE + 1), changeLog.size()));
+        updatedLog.add(change);
+        changeLog = List.copyOf(updatedLog);
+        snapshot = new BusinessHolidaySnapshot(change.getVersion(), updated);
+
+        for (Consumer<HolidayChange> listener : listeners) {
+            listener.accept(change);
+        }
+        return true;
+    }
+}
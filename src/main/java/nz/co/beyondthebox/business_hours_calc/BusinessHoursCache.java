@@ -0,0 +1,177 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded memoisation of addBusinessHours results for whole-second starts and durations. Entries are split
+// over independently locked LRU segments, so concurrent callers only contend when they hash to the same one.
+// Each entry remembers the holiday version it was computed against; after a holiday change it is only
+// dropped if one of the changed dates falls between its start and its result.
+public class BusinessHoursCache {
+    private static final int SEGMENT_COUNT = 16;
+
+    private static final class Key {
+        private final long startSecond;
+        private final long durationSeconds;
+
+        private Key(long startSecond, long durationSeconds) {
+            this.startSecond = startSecond;
+            this.durationSeconds = durationSeconds;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return startSecond == key.startSecond && durationSeconds == key.durationSeconds;
+        }
+
+        @Override
+        public int hashCode() {
+            // Starts and durations are usually whole hours, so mix the bits before they pick a segment
+            return Long.hashCode(startSecond * 0x9E3779B97F4A7C15L + durationSeconds * 0xC2B2AE3D27D4EB4FL);
+        }
+    }
+
+    private static final class Entry {
+        private final LocalDateTime result;
+        private final long version;
+
+        private Entry(LocalDateTime result, long version) {
+            this.result = result;
+            this.version = version;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Key, Entry> {
+        private final int maximumSize;
+        private final LongAdder evictions;
+
+        private Segment(int maximumSize, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final BusinessHoursCalculator calculator;
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // The size bound is enforced per segment, so the cache holds at most maximumSize rounded up to a multiple of 16
+    public BusinessHoursCache(BusinessHoursCalculator calculator, int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be a positive number.");
+        }
+        this.calculator = calculator;
+        int segmentSize = Math.max(1, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize, evictions);
+        }
+    }
+
+    public BusinessHoursCalculator getCalculator() {
+        return calculator;
+    }
+
+    public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration) {
+        if (startDateTime.getNano() != 0 || duration.getNano() != 0 || duration.isNegative()) {
+            // Only whole seconds are cached, everything else goes straight to the calculator
+            return calculator.addBusinessHours(startDateTime, duration);
+        }
+
+        Key key = new Key(startDateTime.toEpochSecond(ZoneOffset.UTC), duration.getSeconds());
+        Segment segment = segments[spread(key.hashCode()) & (SEGMENT_COUNT - 1)];
+        BusinessHolidayStore holidayStore = calculator.getHolidayStore();
+        long version = holidayStore.getVersion();
+
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry != null) {
+            if (entry.version == version) {
+                hits.increment();
+                return entry.result;
+            }
+            if (!holidayStore.hasChangedBetween(entry.version, version, startDateTime.toLocalDate(), entry.result.toLocalDate())) {
+                hits.increment();
+                put(segment, key, new Entry(entry.result, version));
+                return entry.result;
+            }
+            invalidations.increment();
+        }
+
+        misses.increment();
+        LocalDateTime result = calculator.addBusinessHours(startDateTime, duration);
+        put(segment, key, new Entry(result, version));
+        return result;
+    }
+
+    private void put(Segment segment, Key key, Entry entry) {
+        synchronized (segment) {
+            Entry existing = segment.get(key);
+            if (existing == null || existing.version <= entry.version) {
+                segment.put(key, entry);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    // Entries pushed out because their segment was full
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    // Entries dropped because a holiday change fell inside their window
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,28 +1,246 @@
 package nz.co.beyondthebox.business_hours_calc;
 
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Serializes through BusinessCalendarCodec, see SerializedForm
+public class BusinessHoursCalculator implements Serializable {
+    private static final long serialVersionUID = 1L;
+    // Longer durations and ranges are left to the day walk, which keeps business nanoseconds well inside a long
+    private static final long MAXIMUM_COMPILED_DAYS = 100_000;
+    private static final Duration MAXIMUM_COMPILED_DURATION = Duration.ofDays(MAXIMUM_COMPILED_DAYS);
+    private static final int MAXIMUM_MINIMUM_DURATION_TIMELINES = 32;
+    private static final long DEFAULT_MAXIMUM_DAYS_SCANNED = 366_000;
+    private static final long MAXIMUM_CALIBRATION_DAYS = 4096;
+    private static final int CALIBRATION_RUNS = 32;
 
-public class BusinessHoursCalculator {
     private final Map<DayOfWeek, BusinessDay> businessDays;
-    private final Set<LocalDate> holidays;
+    private final BusinessHolidayStore holidayStore;
+    private final BusinessTimeline timeline;
+    private final ConcurrentMap<Duration, BusinessTimeline> minimumDurationTimelines = new ConcurrentHashMap<>();
+    private volatile String calendarName = "BusinessHoursCalculator@" + Integer.toHexString(System.identityHashCode(this));
+    private volatile Duration slowCalculationThreshold = Duration.ofMillis(10);
+    private volatile long daysScannedThreshold = 3660;
+    private volatile long maximumDaysScanned = DEFAULT_MAXIMUM_DAYS_SCANNED;
+    private volatile BusinessEpochIndex epochIndex;
+    private volatile long shiftWalkDays = 14;
+    private final LongAdder[] strategyCounts = new LongAdder[BusinessHoursStrategy.values().length];
+    private volatile long calibrationSink;
 
     public BusinessHoursCalculator(BusinessWeek businessWeek) {
         this(businessWeek.getBusinessDays());
     }
 
     public BusinessHoursCalculator(Map<DayOfWeek, BusinessDay> businessDays) {
-        this.businessDays = businessDays;
-        this.holidays = new TreeSet<>();
+        this(businessDays, new BusinessHolidayStore());
     }
 
     public BusinessHoursCalculator(BusinessWeek businessWeek, Set<LocalDate> holidays) {
         this(businessWeek.getBusinessDays(), holidays);
     }
 
+    // The holidays are copied, later changes to the set are not seen by the calculator
     public BusinessHoursCalculator(Map<DayOfWeek, BusinessDay> businessDays, Set<LocalDate> holidays) {
+        this(businessDays, new BusinessHolidayStore(holidays));
+    }
+
+    public BusinessHoursCalculator(BusinessWeek businessWeek, BusinessHolidayStore holidayStore) {
+        this(businessWeek.getBusinessDays(), holidayStore);
+    }
+
+    // The calculator takes a copy of the business days, so every path answers for the week as it was when the
+    // calculator was built and changes made to the days or the BusinessWeek afterwards are not picked up
+    public BusinessHoursCalculator(Map<DayOfWeek, BusinessDay> businessDays, BusinessHolidayStore holidayStore) {
+        this(copyOf(businessDays), null, holidayStore, null);
+    }
+
+    // For business days nothing else changes. The timeline is compiled from them when null, and the epoch index,
+    // when given, must have been built for the store's current holidays.
+    BusinessHoursCalculator(Map<DayOfWeek, BusinessDay> businessDays, BusinessTimeline timeline, BusinessHolidayStore holidayStore,
+                            BusinessEpochIndex epochIndex) {
         this.businessDays = businessDays;
-        this.holidays = holidays;
+        this.holidayStore = holidayStore;
+        this.timeline = timeline != null ? timeline : BusinessTimeline.compile(businessDays);
+        this.epochIndex = epochIndex;
+        for (int i = 0; i < strategyCounts.length; i++) {
+            strategyCounts[i] = new LongAdder();
+        }
+    }
+
+    private static Map<DayOfWeek, BusinessDay> copyOf(Map<DayOfWeek, BusinessDay> businessDays) {
+        Map<DayOfWeek, BusinessDay> copy = new EnumMap<>(DayOfWeek.class);
+        businessDays.forEach((day, businessDay) -> copy.put(day, new BusinessDay(businessDay.getShifts().toArray(new BusinessShift[0]))));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    public BusinessHolidayStore getHolidayStore() {
+        return holidayStore;
+    }
+
+    Map<DayOfWeek, BusinessDay> getBusinessDays() {
+        return businessDays;
+    }
+
+    BusinessTimeline getTimeline() {
+        return timeline;
+    }
+
+    // The calendar's name, shifts and current holidays in a compact, version-tagged binary form. Holiday changes
+    // made after encoding are not carried over.
+    public byte[] toBytes() {
+        return BusinessCalendarCodec.encode(this);
+    }
+
+    // Calendars decoded from the same bytes share their compiled shifts, but each decode is a calculator of its own
+    // with its own holidays and settings
+    public static BusinessHoursCalculator fromBytes(byte[] bytes) {
+        return BusinessCalendarCodec.decode(bytes);
+    }
+
+    // Java serialization ships the encoded form instead of the business day and holiday graphs
+    private static final class SerializedForm implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] bytes;
+
+        private SerializedForm(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private Object readResolve() {
+            return BusinessCalendarCodec.decode(bytes);
+        }
+    }
+
+    private Object writeReplace() {
+        return new SerializedForm(toBytes());
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("BusinessHoursCalculator is deserialized through its serialized form.");
+    }
+
+    public String getCalendarName() {
+        return calendarName;
+    }
+
+    // Identifies the calendar in Flight Recorder events and guard failures
+    public BusinessHoursCalculator setCalendarName(String calendarName) {
+        this.calendarName = calendarName;
+        return this;
+    }
+
+    // While Flight Recorder is recording, calculations that take at least this long are reported
+    public BusinessHoursCalculator setSlowCalculationThreshold(Duration slowCalculationThreshold) {
+        this.slowCalculationThreshold = slowCalculationThreshold;
+        return this;
+    }
+
+    // While Flight Recorder is recording, calculations that span at least this many days are reported
+    public BusinessHoursCalculator setDaysScannedThreshold(long daysScannedThreshold) {
+        this.daysScannedThreshold = daysScannedThreshold;
+        return this;
+    }
+
+    // addBusinessHours gives up with an IllegalStateException rather than scan further than this many days
+    public BusinessHoursCalculator setMaximumDaysScanned(long maximumDaysScanned) {
+        if (maximumDaysScanned <= 0) {
+            throw new IllegalArgumentException("maximumDaysScanned must be a positive number.");
+        }
+        this.maximumDaysScanned = maximumDaysScanned;
+        return this;
+    }
+
+    public long getMaximumDaysScanned() {
+        return maximumDaysScanned;
+    }
+
+    public long getShiftWalkDays() {
+        return shiftWalkDays;
+    }
+
+    // Calls expected to span at most this many days walk the compiled shifts day by day. Longer ones go through
+    // the epoch index, or the year indexes when there is a minimum duration per day.
+    public BusinessHoursCalculator setShiftWalkDays(long shiftWalkDays) {
+        if (shiftWalkDays < 0) {
+            throw new IllegalArgumentException("shiftWalkDays must not be negative.");
+        }
+        this.shiftWalkDays = shiftWalkDays;
+        return this;
+    }
+
+    // Sets shiftWalkDays to the longest span, in powers of two from today, for which walking the shifts of this
+    // calendar was measured to beat the epoch index
+    public BusinessHoursCalculator calibrateStrategies() {
+        BusinessTimeline compiled = compiledTimeline(null);
+        if (compiled == null) {
+            return this;
+        }
+        BusinessHolidaySnapshot holidays = holidayStore.getSnapshot();
+        LocalDateTime start = LocalDate.now().atStartOfDay();
+        long calibrated = 0;
+        for (long days = 1; days <= MAXIMUM_CALIBRATION_DAYS; days *= 2) {
+            LocalDateTime end = start.plusDays(days);
+            long walkNanos = fastestRun(() -> businessNanosByShiftWalk(compiled, holidays, start, end));
+            long indexNanos = fastestRun(() -> toBusinessEpoch(end) - toBusinessEpoch(start));
+            if (indexNanos < walkNanos) {
+                break;
+            }
+            calibrated = days;
+        }
+        return setShiftWalkDays(calibrated);
+    }
+
+    private long fastestRun(LongSupplier calculation) {
+        long fastest = Long.MAX_VALUE;
+        for (int run = 0; run < CALIBRATION_RUNS; run++) {
+            long startNanos = System.nanoTime();
+            calibrationSink += calculation.getAsLong();
+            fastest = Math.min(fastest, System.nanoTime() - startNanos);
+        }
+        return fastest;
+    }
+
+    // Calls to addBusinessHours and calculateWorkingDurationBetween evaluated with the given strategy
+    public long getStrategyCount(BusinessHoursStrategy strategy) {
+        return strategyCounts[strategy.ordinal()].sum();
+    }
+
+    public Map<BusinessHoursStrategy, Long> getStrategyCounts() {
+        Map<BusinessHoursStrategy, Long> counts = new EnumMap<>(BusinessHoursStrategy.class);
+        for (BusinessHoursStrategy strategy : BusinessHoursStrategy.values()) {
+            counts.put(strategy, getStrategyCount(strategy));
+        }
+        return counts;
+    }
+
+    // Whether business epochs from epochDay out to days further on stay well inside a long, even for a calendar
+    // that is always open
+    static boolean fitsBusinessEpoch(long epochDay, long days) {
+        return Math.abs(epochDay) + days < MAXIMUM_COMPILED_DAYS;
+    }
+
+    private BusinessHoursStrategy chooseStrategy(BusinessTimeline compiled, double spanDays, Duration minimumDurationPerDay, boolean fitsBusinessEpoch) {
+        BusinessHoursStrategy strategy;
+        if (compiled == null) {
+            strategy = BusinessHoursStrategy.DAY_WALK;
+        } else if (spanDays <= shiftWalkDays) {
+            strategy = BusinessHoursStrategy.SHIFT_WALK;
+        } else if (minimumDurationPerDay == null && fitsBusinessEpoch) {
+            strategy = BusinessHoursStrategy.EPOCH_INDEX;
+        } else {
+            strategy = BusinessHoursStrategy.YEAR_INDEX;
+        }
+        strategyCounts[strategy.ordinal()].increment();
+        return strategy;
     }
 
     public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration) {
@@ -37,16 +255,63 @@ public class BusinessHoursCalculator {
         if(duration.isNegative()) {
             throw new IllegalArgumentException("duration must be a positive number.");
         }
+        if (timeline.getWeekNanos() == 0 && (minimumDurationPerDay == null || minimumDurationPerDay.isZero() || businessDays.isEmpty())) {
+            throw new IllegalStateException("The calendar " + calendarName + " has no business hours.");
+        }
+
+        BusinessCalculationEvent event = new BusinessCalculationEvent();
+        long startNanos = event.isEnabled() ? System.nanoTime() : 0;
+        event.begin();
+        LocalDateTime result = null;
+        BusinessHoursStrategy strategy = null;
+        try {
+            BusinessTimeline compiled = compiledTimeline(minimumDurationPerDay);
+            if (duration.isZero() || duration.compareTo(MAXIMUM_COMPILED_DURATION) > 0) {
+                compiled = null;
+            }
+            // The span is estimated from the average business day, holidays only make it longer
+            strategy = chooseStrategy(compiled, compiled == null ? 0 : duration.toNanos() * 7.0 / compiled.getWeekNanos(), minimumDurationPerDay,
+                    fitsBusinessEpoch(startDateTime.toLocalDate().toEpochDay(), duration.toDays() + 1));
+            switch (strategy) {
+                case SHIFT_WALK:
+                    result = addBusinessNanosByShiftWalk(compiled, holidayStore.getSnapshot(), startDateTime, duration.toNanos());
+                    break;
+                case YEAR_INDEX:
+                    result = addBusinessNanos(compiled, holidayStore.getSnapshot(), startDateTime, duration.toNanos());
+                    break;
+                case EPOCH_INDEX:
+                    LocalDateTime reached = fromBusinessEpoch(toBusinessEpoch(startDateTime) + duration.toNanos());
+                    if (reached.toLocalDate().toEpochDay() - startDateTime.toLocalDate().toEpochDay() >= maximumDaysScanned) {
+                        throw tooManyDaysScanned(startDateTime);
+                    }
+                    result = reached;
+                    break;
+                default:
+                    result = addBusinessHoursByDayWalk(startDateTime, duration, minimumDurationPerDay);
+            }
+            return result;
+        } finally {
+            recordCalculation(event, startNanos, "addBusinessHours", strategy, startDateTime, result, duration, minimumDurationPerDay);
+        }
+    }
+
+    // The original implementation, which visits every day and reads the BusinessDay shifts directly
+    LocalDateTime addBusinessHoursByDayWalk(LocalDateTime startDateTime, Duration duration, Duration minimumDurationPerDay) {
+        BusinessHolidaySnapshot holidays = holidayStore.getSnapshot();
         LocalDateTime endDateTime = startDateTime;
         boolean firstDay = true;
         boolean finishedAtMidnight;
         // This flag makes sure that it runs at least once to allow moving date to business day if duration passed is Zero
         boolean firstRunAllowZero = true;
+        long daysScanned = 0;
         while (firstRunAllowZero || !duration.isZero()) {
+            if (++daysScanned > maximumDaysScanned) {
+                throw tooManyDaysScanned(startDateTime);
+            }
             finishedAtMidnight = false;
             // Check if the current day is a business day
             BusinessDay currentBusinessDay = businessDays.get(endDateTime.getDayOfWeek());
-            if (currentBusinessDay != null && !isHoliday(endDateTime)) {
+            if (currentBusinessDay != null && !isHoliday(holidays, endDateTime)) {
                 firstRunAllowZero = false;
 
                 Duration availableWorkHours = minimumDurationPerDay != null && minimumDurationPerDay.compareTo(currentBusinessDay.getBusinessDayLength()) >= 0
@@ -114,6 +379,79 @@ public class BusinessHoursCalculator {
         return endDateTime;
     }
 
+    // Fixed-point form of addBusinessHours. Times are counts of unit since 1970-01-01T00:00 in the calendar's
+    // local time and the duration is a count of unit. The deadline is rounded up to a whole unit, so it is
+    // never earlier than the exact answer.
+    //
+    // Calendars the compiled timeline answers for are worked out on epoch days through the epoch index without
+    // allocating; only zero durations, calls outside the business epoch range and calls that reach the
+    // maximumDaysScanned guard take the LocalDateTime path. Calls answered without allocating are not reported
+    // to Flight Recorder.
+    public long addBusinessTime(long startTime, long duration, TimeUnit unit) {
+        long unitNanos = unit.toNanos(1);
+        long unitsPerDay = BusinessTimeline.NANOS_PER_DAY / unitNanos;
+        long startDay = Math.floorDiv(startTime, unitsPerDay);
+        if (compiledTimeline(null) != null && duration > 0 && duration <= Long.MAX_VALUE / unitNanos
+                && fitsBusinessEpoch(startDay, duration / unitsPerDay + 1)) {
+            BusinessEpochIndex index = getEpochIndex();
+            long target = businessEpoch(index, startDay, Math.floorMod(startTime, unitsPerDay) * unitNanos) + duration * unitNanos;
+            long day = index.dayReaching(target);
+            if (day - startDay < maximumDaysScanned) {
+                strategyCounts[BusinessHoursStrategy.EPOCH_INDEX.ordinal()].increment();
+                long nanoOfDay = timeline.nanoOfDayAfter(dayOfWeek(day), 0, target - index.nanosBefore(day));
+                return day * unitsPerDay + (nanoOfDay + unitNanos - 1) / unitNanos;
+            }
+        }
+        LocalDateTime deadline = addBusinessHours(toDateTime(startTime, unit), Duration.of(duration, unit.toChronoUnit()));
+        return toTime(deadline.toEpochSecond(ZoneOffset.UTC), deadline.getNano(), unit, true);
+    }
+
+    // Fixed-point form of calculateWorkingDurationBetween, in the same units as addBusinessTime. The result is
+    // rounded down to a whole unit, so it never overstates the business time.
+    public long calculateWorkingTimeBetween(long startTime, long endTime, TimeUnit unit) {
+        long unitNanos = unit.toNanos(1);
+        long unitsPerDay = BusinessTimeline.NANOS_PER_DAY / unitNanos;
+        long startDay = Math.floorDiv(startTime, unitsPerDay);
+        long endDay = Math.floorDiv(endTime, unitsPerDay);
+        if (compiledTimeline(null) != null && startTime <= endTime && fitsBusinessEpoch(startDay, 0) && fitsBusinessEpoch(endDay, 0)) {
+            BusinessEpochIndex index = getEpochIndex();
+            strategyCounts[BusinessHoursStrategy.EPOCH_INDEX.ordinal()].increment();
+            return (businessEpoch(index, endDay, Math.floorMod(endTime, unitsPerDay) * unitNanos)
+                    - businessEpoch(index, startDay, Math.floorMod(startTime, unitsPerDay) * unitNanos)) / unitNanos;
+        }
+        Duration duration = calculateWorkingDurationBetween(toDateTime(startTime, unit), toDateTime(endTime, unit));
+        return toTime(duration.getSeconds(), duration.getNano(), unit, false);
+    }
+
+    private long businessEpoch(BusinessEpochIndex index, long epochDay, long nanoOfDay) {
+        long nanos = index.nanosBefore(epochDay);
+        return index.isHoliday(epochDay) ? nanos : nanos + timeline.nanosBetween(dayOfWeek(epochDay), 0, nanoOfDay);
+    }
+
+    private static DayOfWeek dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return DayOfWeek.of((int) Math.floorMod(epochDay + 3, 7) + 1);
+    }
+
+    private static LocalDateTime toDateTime(long time, TimeUnit unit) {
+        if (unit.compareTo(TimeUnit.SECONDS) >= 0) {
+            return LocalDateTime.ofEpochSecond(unit.toSeconds(time), 0, ZoneOffset.UTC);
+        }
+        long perSecond = unit.convert(1, TimeUnit.SECONDS);
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(time, perSecond), (int) unit.toNanos(Math.floorMod(time, perSecond)), ZoneOffset.UTC);
+    }
+
+    private static long toTime(long seconds, int nano, TimeUnit unit, boolean roundUp) {
+        if (unit.compareTo(TimeUnit.SECONDS) >= 0) {
+            long unitSeconds = unit.toSeconds(1);
+            boolean exact = Math.floorMod(seconds, unitSeconds) == 0 && nano == 0;
+            return Math.floorDiv(seconds, unitSeconds) + (roundUp && !exact ? 1 : 0);
+        }
+        long unitNanos = unit.toNanos(1);
+        long fraction = nano / unitNanos + (roundUp && nano % unitNanos != 0 ? 1 : 0);
+        return Math.addExact(Math.multiplyExact(seconds, unit.convert(1, TimeUnit.SECONDS)), fraction);
+    }
+
     public Duration calculateWorkingDurationBetween(LocalDateTime startDateTime, LocalDateTime endDateTime) {
         return calculateWorkingDurationBetween(startDateTime, endDateTime, null);
     }
@@ -127,13 +465,48 @@ public class BusinessHoursCalculator {
             throw new IllegalArgumentException("minimumDurationPerDay must be a positive number.");
         }
 
+        BusinessCalculationEvent event = new BusinessCalculationEvent();
+        long startNanos = event.isEnabled() ? System.nanoTime() : 0;
+        event.begin();
+        Duration result = null;
+        BusinessHoursStrategy strategy = null;
+        try {
+            BusinessTimeline compiled = compiledTimeline(minimumDurationPerDay);
+            long days = endDateTime.toLocalDate().toEpochDay() - startDateTime.toLocalDate().toEpochDay();
+            if (days > MAXIMUM_COMPILED_DAYS) {
+                compiled = null;
+            }
+            strategy = chooseStrategy(compiled, days, minimumDurationPerDay,
+                    fitsBusinessEpoch(startDateTime.toLocalDate().toEpochDay(), 0) && fitsBusinessEpoch(endDateTime.toLocalDate().toEpochDay(), 0));
+            switch (strategy) {
+                case SHIFT_WALK:
+                    result = Duration.ofNanos(businessNanosByShiftWalk(compiled, holidayStore.getSnapshot(), startDateTime, endDateTime));
+                    break;
+                case YEAR_INDEX:
+                    result = Duration.ofNanos(businessNanosBetween(compiled, holidayStore.getSnapshot(), startDateTime, endDateTime));
+                    break;
+                case EPOCH_INDEX:
+                    result = Duration.ofNanos(toBusinessEpoch(endDateTime) - toBusinessEpoch(startDateTime));
+                    break;
+                default:
+                    result = calculateWorkingDurationBetweenByDayWalk(startDateTime, endDateTime, minimumDurationPerDay);
+            }
+            return result;
+        } finally {
+            recordCalculation(event, startNanos, "calculateWorkingDurationBetween", strategy, startDateTime, result == null ? null : endDateTime, result, minimumDurationPerDay);
+        }
+    }
+
+    // The original implementation, which visits every day and reads the BusinessDay shifts directly
+    Duration calculateWorkingDurationBetweenByDayWalk(LocalDateTime startDateTime, LocalDateTime endDateTime, Duration minimumDurationPerDay) {
+        BusinessHolidaySnapshot holidays = holidayStore.getSnapshot();
         Duration totalWorkingDuration = Duration.ZERO;
         LocalDateTime currentDateTime = startDateTime;
         boolean finishedAtMidnight;
         while (currentDateTime.isBefore(endDateTime)) {
             finishedAtMidnight = false;
             BusinessDay currentBusinessDay = businessDays.get(currentDateTime.getDayOfWeek());
-            if (currentBusinessDay != null && !isHoliday(currentDateTime)) {
+            if (currentBusinessDay != null && !isHoliday(holidays, currentDateTime)) {
                 Duration availableWorkHours = currentBusinessDay.getBusinessDayLength();
 
                 for (BusinessShift shift : currentBusinessDay.getShifts()) {
@@ -157,10 +530,10 @@ public class BusinessHoursCalculator {
                     // Calculate duration in the overlapping time within this shift
                     LocalDateTime effectiveStart = currentDateTime.isBefore(shiftStart) ? shiftStart : currentDateTime;
                     LocalDateTime effectiveEnd = endDateTime.isAfter(shiftEnd) ? shiftEnd : endDateTime;
-                    Duration overlap = Duration.between(effectiveStart, effectiveEnd);
-
-                    // Add the overlapping time to the total working duration
-                    totalWorkingDuration = totalWorkingDuration.plus(overlap);
+                    // Add the overlapping time to the total working duration, an end before the shift starts adds nothing
+                    if (effectiveEnd.isAfter(effectiveStart)) {
+                        totalWorkingDuration = totalWorkingDuration.plus(Duration.between(effectiveStart, effectiveEnd));
+                    }
 
                     // Move the current time to the end of this shift
                     currentDateTime = shiftEnd;
@@ -183,9 +556,399 @@ public class BusinessHoursCalculator {
         return totalWorkingDuration;
     }
 
+    public Duration calculateCoveredDuration(Collection<BusinessInterval> intervals) {
+        return sweepCoverage(intervals, false).getCoveredDuration();
+    }
+
+    // The earliest time at or after startDateTime at which duration fits entirely inside one shift, without a
+    // break, holiday or closed night splitting it. Shifts that run up to midnight carry on into a shift starting
+    // at midnight the next day. Returns null when no run of shifts in the week is ever long enough.
+    public LocalDateTime findContiguousSlot(LocalDateTime startDateTime, Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("duration must be a positive number.");
+        }
+        long nanos = duration.toNanos();
+        if (!canFitContiguously(nanos)) {
+            return null;
+        }
+
+        BusinessHolidaySnapshot holidays = holidayStore.getSnapshot();
+        LocalDate date = startDateTime.toLocalDate();
+        long fromNanoOfDay = startDateTime.toLocalTime().toNanoOfDay();
+        for (long daysScanned = 0; ; daysScanned++, date = date.plusDays(1), fromNanoOfDay = 0) {
+            if (daysScanned >= maximumDaysScanned) {
+                throw new IllegalStateException("findContiguousSlot from " + startDateTime + " scanned more than " + maximumDaysScanned
+                        + " days of the calendar " + calendarName + " without finding a slot.");
+            }
+            DayOfWeek dayOfWeek = date.getDayOfWeek();
+            // Days whose shifts are all too short are passed over without looking at them
+            if (holidays.isHoliday(date)
+                    || timeline.getLongestShiftNanos(dayOfWeek) < nanos && !timeline.isOpenAtMidnight(dayOfWeek)) {
+                continue;
+            }
+            long[] shifts = timeline.getShifts(dayOfWeek);
+            for (int i = 0; i < shifts.length; i += 2) {
+                long start = Math.max(shifts[i], fromNanoOfDay);
+                long end = shifts[i + 1];
+                if (start >= end) {
+                    continue;
+                }
+                if (end - start >= nanos || end == BusinessTimeline.NANOS_PER_DAY
+                        && end - start + continuationNanos(holidays, date.plusDays(1), nanos - (end - start)) >= nanos) {
+                    return date.atStartOfDay().plusNanos(start);
+                }
+            }
+        }
+    }
+
+    // Business time running on from midnight at the start of date without a gap, looking no further than needed
+    private long continuationNanos(BusinessHolidaySnapshot holidays, LocalDate date, long neededNanos) {
+        long total = 0;
+        for (int day = 0; day < 7 && total < neededNanos; day++, date = date.plusDays(1)) {
+            long[] shifts = timeline.getShifts(date.getDayOfWeek());
+            if (holidays.isHoliday(date) || shifts.length == 0 || shifts[0] != 0) {
+                return total;
+            }
+            total += shifts[1];
+            if (shifts[1] != BusinessTimeline.NANOS_PER_DAY) {
+                return total;
+            }
+        }
+        if (total >= neededNanos) {
+            return total;
+        }
+        // A week long run means the calendar is open around the clock, so only the next holiday can end the run
+        LocalDate nextHoliday = holidays.getHolidays().ceiling(date);
+        if (nextHoliday == null) {
+            return neededNanos;
+        }
+        long daysNeeded = (neededNanos - total + BusinessTimeline.NANOS_PER_DAY - 1) / BusinessTimeline.NANOS_PER_DAY;
+        long daysOpen = nextHoliday.toEpochDay() - date.toEpochDay();
+        return daysOpen >= daysNeeded ? neededNanos : total + daysOpen * BusinessTimeline.NANOS_PER_DAY;
+    }
+
+    // Whether any day of the week starts a run of shifts long enough, before holidays are taken into account
+    private boolean canFitContiguously(long nanos) {
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            long[] shifts = timeline.getShifts(dayOfWeek);
+            if (shifts.length == 0) {
+                continue;
+            }
+            long runNanos = timeline.isOpenAtMidnight(dayOfWeek) ? shifts[shifts.length - 1] - shifts[shifts.length - 2] : 0;
+            DayOfWeek next = dayOfWeek.plus(1);
+            for (int day = 0; day < 7 && runNanos > 0; day++, next = next.plus(1)) {
+                long[] nextShifts = timeline.getShifts(next);
+                if (nextShifts.length == 0 || nextShifts[0] != 0) {
+                    break;
+                }
+                runNanos += nextShifts[1];
+                if (nextShifts[1] != BusinessTimeline.NANOS_PER_DAY) {
+                    break;
+                }
+                if (day == 6) {
+                    return true;
+                }
+            }
+            if (Math.max(runNanos, timeline.getLongestShiftNanos(dayOfWeek)) >= nanos) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Business nanoseconds from 1970-01-01T00:00 to dateTime, negative before then. The mapping never decreases,
+    // so business durations are differences of two mapped values and can be bucketed or sorted directly. It
+    // follows the merged shifts of the calendar and does not apply a minimumDurationPerDay.
+    public long toBusinessEpoch(LocalDateTime dateTime) {
+        BusinessEpochIndex index = getEpochIndex();
+        long epochDay = dateTime.toLocalDate().toEpochDay();
+        long nanos = index.nanosBefore(epochDay);
+        if (!index.isHoliday(epochDay)) {
+            nanos += timeline.nanosBetween(dateTime.getDayOfWeek(), 0, dateTime.toLocalTime().toNanoOfDay());
+        }
+        return nanos;
+    }
+
+    // The earliest date time at which toBusinessEpoch reaches businessEpoch, so mapping a start, adding a
+    // duration and mapping back gives the same answer as addBusinessHours for durations above zero
+    public LocalDateTime fromBusinessEpoch(long businessEpoch) {
+        BusinessEpochIndex index = getEpochIndex();
+        if (index.getWeekNanos() == 0) {
+            throw new IllegalStateException("The calendar " + calendarName + " has no business hours.");
+        }
+        long epochDay = index.dayReaching(businessEpoch);
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        return date.atStartOfDay().plusNanos(timeline.nanoOfDayAfter(date.getDayOfWeek(), 0, businessEpoch - index.nanosBefore(epochDay)));
+    }
+
+    BusinessEpochIndex getEpochIndex() {
+        BusinessHolidaySnapshot holidays = holidayStore.getSnapshot();
+        BusinessEpochIndex index = epochIndex;
+        if (index == null || index.getVersion() != holidays.getVersion()) {
+            index = new BusinessEpochIndex(timeline, holidays);
+            epochIndex = index;
+        }
+        return index;
+    }
+
+    public boolean isOpen(LocalDateTime dateTime) {
+        return isOpen(holidayStore.getSnapshot(), dateTime.toLocalDate(), dateTime.toLocalTime().toNanoOfDay());
+    }
+
+    // The first time after dateTime at which the calendar opens or closes, or null when it never changes again.
+    // Business time is open from the start of each shift up to, but not including, its end.
+    public LocalDateTime nextTransition(LocalDateTime dateTime) {
+        BusinessHolidaySnapshot holidays = holidayStore.getSnapshot();
+        LocalDate date = dateTime.toLocalDate();
+        long afterNanoOfDay = dateTime.toLocalTime().toNanoOfDay();
+        boolean open = isOpen(holidays, date, afterNanoOfDay);
+        long weekNanos = timeline.getWeekNanos();
+        if (!open && weekNanos == 0) {
+            return null;
+        }
+        for (long daysScanned = 0; daysScanned < maximumDaysScanned; daysScanned++, date = date.plusDays(1), afterNanoOfDay = -1) {
+            if (open && weekNanos == 7 * BusinessTimeline.NANOS_PER_DAY && !holidays.isHoliday(date)) {
+                // Open around the clock, so only the next holiday closes it
+                LocalDate nextHoliday = holidays.getHolidays().higher(date);
+                return nextHoliday == null ? null : nextHoliday.atStartOfDay();
+            }
+            if (afterNanoOfDay < 0 && isOpen(holidays, date, 0) != open) {
+                return date.atStartOfDay();
+            }
+            long[] shifts = timeline.getShifts(date.getDayOfWeek());
+            for (int i = 0; i < shifts.length; i++) {
+                long boundary = shifts[i];
+                if (boundary > afterNanoOfDay && boundary < BusinessTimeline.NANOS_PER_DAY && isOpen(holidays, date, boundary) != open) {
+                    return date.atStartOfDay().plusNanos(boundary);
+                }
+            }
+        }
+        throw new IllegalStateException("nextTransition from " + dateTime + " scanned more than " + maximumDaysScanned
+                + " days of the calendar " + calendarName + " without finding a transition.");
+    }
+
+    private boolean isOpen(BusinessHolidaySnapshot holidays, LocalDate date, long nanoOfDay) {
+        if (holidays.isHoliday(date)) {
+            return false;
+        }
+        long[] shifts = timeline.getShifts(date.getDayOfWeek());
+        for (int i = 0; i < shifts.length; i += 2) {
+            if (nanoOfDay >= shifts[i] && nanoOfDay < shifts[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public BusinessCoverage calculateCoverage(Collection<BusinessInterval> intervals) {
+        return sweepCoverage(intervals, true);
+    }
+
+    private BusinessCoverage sweepCoverage(Collection<BusinessInterval> intervals, boolean byConcurrency) {
+        BusinessHolidaySnapshot holidays = holidayStore.getSnapshot();
+        List<LocalDateTime> startList = new ArrayList<>(intervals.size());
+        List<LocalDateTime> endList = new ArrayList<>(intervals.size());
+        for (BusinessInterval interval : intervals) {
+            if (!interval.isEmpty()) {
+                startList.add(interval.getStartDateTime());
+                endList.add(interval.getEndDateTime());
+            }
+        }
+        LocalDateTime[] starts = startList.toArray(new LocalDateTime[0]);
+        LocalDateTime[] ends = endList.toArray(new LocalDateTime[0]);
+        Arrays.sort(starts);
+        Arrays.sort(ends);
+
+        // Walk the sorted start and end points together. Between two consecutive points the number of
+        // open intervals is constant, so each stretch is intersected with the business hours exactly once.
+        long coveredNanos = 0;
+        long[] nanosByConcurrency = new long[byConcurrency ? 8 : 0];
+        int nextStart = 0;
+        int nextEnd = 0;
+        LocalDateTime current = null;
+        while (nextEnd < ends.length) {
+            LocalDateTime next = nextStart < starts.length && starts[nextStart].isBefore(ends[nextEnd])
+                    ? starts[nextStart]
+                    : ends[nextEnd];
+            int concurrency = nextStart - nextEnd;
+            if (concurrency > 0 && next.isAfter(current)) {
+                long nanos = businessNanosBetween(timeline, holidays, current, next);
+                coveredNanos += nanos;
+                if (byConcurrency) {
+                    if (concurrency >= nanosByConcurrency.length) {
+                        nanosByConcurrency = Arrays.copyOf(nanosByConcurrency, Math.max(concurrency + 1, nanosByConcurrency.length * 2));
+                    }
+                    nanosByConcurrency[concurrency] += nanos;
+                }
+            }
+            while (nextStart < starts.length && starts[nextStart].equals(next)) {
+                nextStart++;
+            }
+            while (nextEnd < ends.length && ends[nextEnd].equals(next)) {
+                nextEnd++;
+            }
+            current = next;
+        }
+
+        SortedMap<Integer, Duration> durationByConcurrency = new TreeMap<>();
+        for (int concurrency = 1; concurrency < nanosByConcurrency.length; concurrency++) {
+            if (nanosByConcurrency[concurrency] > 0) {
+                durationByConcurrency.put(concurrency, Duration.ofNanos(nanosByConcurrency[concurrency]));
+            }
+        }
+        return new BusinessCoverage(Duration.ofNanos(coveredNanos), durationByConcurrency);
+    }
+
+    // Returns null when the day walk has to be used instead
+    private BusinessTimeline compiledTimeline(Duration minimumDurationPerDay) {
+        BusinessTimeline compiled = timeline;
+        if (minimumDurationPerDay != null) {
+            compiled = minimumDurationTimelines.get(minimumDurationPerDay);
+            if (compiled == null) {
+                if (minimumDurationTimelines.size() >= MAXIMUM_MINIMUM_DURATION_TIMELINES) {
+                    return null;
+                }
+                compiled = minimumDurationTimelines.computeIfAbsent(minimumDurationPerDay, timeline::withMinimumDurationPerDay);
+            }
+        }
+        return compiled.isExact() && compiled.getWeekNanos() > 0 ? compiled : null;
+    }
+
+    private LocalDateTime addBusinessNanos(BusinessTimeline timeline, BusinessHolidaySnapshot holidays, LocalDateTime startDateTime, long nanos) {
+        LocalDate date = startDateTime.toLocalDate();
+        if (!holidays.isHoliday(date)) {
+            long fromNanoOfDay = timeline.effectiveStart(date.getDayOfWeek(), startDateTime.toLocalTime().toNanoOfDay());
+            long available = timeline.nanosBetween(date.getDayOfWeek(), fromNanoOfDay, BusinessTimeline.NANOS_PER_DAY);
+            if (nanos <= available) {
+                return date.atStartOfDay().plusNanos(timeline.nanoOfDayAfter(date.getDayOfWeek(), fromNanoOfDay, nanos));
+            }
+            nanos -= available;
+        }
+
+        // Skip whole years, then find the final day from the running totals rather than visiting each day
+        date = date.plusDays(1);
+        while (true) {
+            if (date.toEpochDay() - startDateTime.toLocalDate().toEpochDay() >= maximumDaysScanned) {
+                throw tooManyDaysScanned(startDateTime);
+            }
+            BusinessYearIndex index = timeline.yearIndex(holidayStore, holidays, date.getYear());
+            long nanosBefore = index.nanosBefore(date);
+            long remainingInYear = index.getYearNanos() - nanosBefore;
+            if (nanos > remainingInYear) {
+                nanos -= remainingInYear;
+                date = LocalDate.ofYearDay(date.getYear() + 1, 1);
+                continue;
+            }
+            LocalDate finalDate = index.dateReaching(nanosBefore + nanos);
+            if (finalDate.toEpochDay() - startDateTime.toLocalDate().toEpochDay() >= maximumDaysScanned) {
+                throw tooManyDaysScanned(startDateTime);
+            }
+            nanos -= index.nanosBefore(finalDate) - nanosBefore;
+            return finalDate.atStartOfDay().plusNanos(timeline.nanoOfDayAfter(finalDate.getDayOfWeek(), 0, nanos));
+        }
+    }
+
+    private LocalDateTime addBusinessNanosByShiftWalk(BusinessTimeline timeline, BusinessHolidaySnapshot holidays, LocalDateTime startDateTime, long nanos) {
+        LocalDate date = startDateTime.toLocalDate();
+        long fromNanoOfDay = timeline.effectiveStart(date.getDayOfWeek(), startDateTime.toLocalTime().toNanoOfDay());
+        while (true) {
+            if (date.toEpochDay() - startDateTime.toLocalDate().toEpochDay() >= maximumDaysScanned) {
+                throw tooManyDaysScanned(startDateTime);
+            }
+            if (!holidays.isHoliday(date)) {
+                long available = timeline.nanosBetween(date.getDayOfWeek(), fromNanoOfDay, BusinessTimeline.NANOS_PER_DAY);
+                if (nanos <= available) {
+                    return date.atStartOfDay().plusNanos(timeline.nanoOfDayAfter(date.getDayOfWeek(), fromNanoOfDay, nanos));
+                }
+                nanos -= available;
+            }
+            date = date.plusDays(1);
+            fromNanoOfDay = 0;
+        }
+    }
+
+    private long businessNanosByShiftWalk(BusinessTimeline timeline, BusinessHolidaySnapshot holidays, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        LocalDate date = startDateTime.toLocalDate();
+        LocalDate endDate = endDateTime.toLocalDate();
+        long fromNanoOfDay = timeline.effectiveStart(date.getDayOfWeek(), startDateTime.toLocalTime().toNanoOfDay());
+        long total = 0;
+        for (; date.isBefore(endDate); date = date.plusDays(1), fromNanoOfDay = 0) {
+            total += businessNanosOnDay(timeline, holidays, date, fromNanoOfDay, BusinessTimeline.NANOS_PER_DAY);
+        }
+        return total + businessNanosOnDay(timeline, holidays, endDate, fromNanoOfDay, endDateTime.toLocalTime().toNanoOfDay());
+    }
+
+    private long businessNanosBetween(BusinessTimeline timeline, BusinessHolidaySnapshot holidays, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        LocalDate startDate = startDateTime.toLocalDate();
+        LocalDate endDate = endDateTime.toLocalDate();
+        long startNanoOfDay = timeline.effectiveStart(startDate.getDayOfWeek(), startDateTime.toLocalTime().toNanoOfDay());
+        long endNanoOfDay = endDateTime.toLocalTime().toNanoOfDay();
+        if (startDate.equals(endDate)) {
+            return businessNanosOnDay(timeline, holidays, startDate, startNanoOfDay, endNanoOfDay);
+        }
+        // Partial first and last days, with every full day in between read from the year indexes
+        return businessNanosOnDay(timeline, holidays, startDate, startNanoOfDay, BusinessTimeline.NANOS_PER_DAY)
+                + businessNanosBetween(timeline, holidays, startDate.plusDays(1), endDate)
+                + businessNanosOnDay(timeline, holidays, endDate, 0, endNanoOfDay);
+    }
+
+    private long businessNanosOnDay(BusinessTimeline timeline, BusinessHolidaySnapshot holidays, LocalDate date, long fromNanoOfDay, long toNanoOfDay) {
+        if (holidays.isHoliday(date)) {
+            return 0;
+        }
+        return timeline.nanosBetween(date.getDayOfWeek(), fromNanoOfDay, toNanoOfDay);
+    }
+
+    // Business nanoseconds in the whole days from startDate (inclusive) to endDate (exclusive)
+    private long businessNanosBetween(BusinessTimeline timeline, BusinessHolidaySnapshot holidays, LocalDate startDate, LocalDate endDate) {
+        if (!startDate.isBefore(endDate)) {
+            return 0;
+        }
+        BusinessYearIndex startIndex = timeline.yearIndex(holidayStore, holidays, startDate.getYear());
+        if (startDate.getYear() == endDate.getYear()) {
+            return startIndex.nanosBefore(endDate) - startIndex.nanosBefore(startDate);
+        }
+        long total = startIndex.getYearNanos() - startIndex.nanosBefore(startDate);
+        for (int year = startDate.getYear() + 1; year < endDate.getYear(); year++) {
+            total += timeline.yearIndex(holidayStore, holidays, year).getYearNanos();
+        }
+        return total + timeline.yearIndex(holidayStore, holidays, endDate.getYear()).nanosBefore(endDate);
+    }
+
+    private IllegalStateException tooManyDaysScanned(LocalDateTime startDateTime) {
+        return new IllegalStateException("addBusinessHours from " + startDateTime + " scanned more than " + maximumDaysScanned
+                + " days of the calendar " + calendarName + " without finding enough business hours.");
+    }
+
+    // Commits the event when the calculation was slow, spanned many days or was aborted. Does nothing unless
+    // Flight Recorder is recording the event.
+    private void recordCalculation(BusinessCalculationEvent event, long startNanos, String operation, BusinessHoursStrategy strategy,
+                                   LocalDateTime startDateTime, LocalDateTime endDateTime, Duration duration, Duration minimumDurationPerDay) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        long daysScanned = endDateTime == null
+                ? maximumDaysScanned
+                : endDateTime.toLocalDate().toEpochDay() - startDateTime.toLocalDate().toEpochDay() + 1;
+        boolean slow = System.nanoTime() - startNanos >= slowCalculationThreshold.toNanos();
+        if (endDateTime != null && !slow && daysScanned < daysScannedThreshold) {
+            return;
+        }
+        event.calendar = calendarName;
+        event.operation = operation;
+        event.strategy = strategy == null ? null : strategy.name();
+        event.startDateTime = startDateTime.toString();
+        event.endDateTime = endDateTime == null ? null : endDateTime.toString();
+        event.businessDuration = duration == null ? null : duration.toString();
+        event.minimumDurationPerDay = minimumDurationPerDay == null ? null : minimumDurationPerDay.toString();
+        event.daysScanned = daysScanned;
+        event.aborted = endDateTime == null;
+        event.commit();
+    }
 
-    private boolean isHoliday(LocalDateTime dateTime) {
-        return holidays.contains(dateTime.toLocalDate());
+    private boolean isHoliday(BusinessHolidaySnapshot holidays, LocalDateTime dateTime) {
+        return holidays.isHoliday(dateTime.toLocalDate());
     }
 
 }
@@ -0,0 +1,27 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDateTime;
+
+public class BusinessHoursCompletion<K> {
+    private final K calendar;
+    private final LocalDateTime dateTime;
+
+    public BusinessHoursCompletion(K calendar, LocalDateTime dateTime) {
+        this.calendar = calendar;
+        this.dateTime = dateTime;
+    }
+
+    // The key the calendar was added to the fan-out with
+    public K getCalendar() {
+        return calendar;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    @Override
+    public String toString() {
+        return calendar + " finishes at " + dateTime;
+    }
+}
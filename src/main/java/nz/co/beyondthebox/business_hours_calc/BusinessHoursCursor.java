@@ -0,0 +1,178 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// A stateful reader over a calculator for timestamps that arrive nearly in order. It remembers where the last
+// query left off, the day, the shift within it and the business epoch reached, and moves forward from there,
+// so each query costs amortised constant time. Starts and ends are tracked separately, as each of them tends to
+// be ordered even when one event's end is after the next event's start.
+//
+// A timestamp before the remembered position, a long jump forward or a holiday change re-seeks through the
+// calculator's epoch index instead. Calendars the compiled timeline can't answer for, and zero durations, go to
+// the calculator itself. Answers match the calculator without a minimumDurationPerDay. Not thread safe.
+public class BusinessHoursCursor {
+    // Jumps further ahead than this seek through the epoch index rather than stepping over every day
+    private static final long MAXIMUM_STEP_DAYS = 64;
+    private static final long[] NO_SHIFTS = new long[0];
+
+    private final class Position {
+        private boolean positioned;
+        private long epochDay;
+        // Business nanoseconds before the start of epochDay
+        private long dayBase;
+        private long dayNanos;
+        private long[] shifts;
+        // Offset of the first shift not yet passed, and the business time in the shifts before it
+        private int shift;
+        private long passedInDay;
+        private long nanoOfDay;
+        private long epoch;
+        // Whether nanoOfDay is the earliest time the epoch was reached, as left by reach
+        private boolean earliest;
+
+        private long moveTo(long targetDay, long targetNanoOfDay) {
+            if (!positioned || targetDay < epochDay || targetDay == epochDay && targetNanoOfDay < nanoOfDay) {
+                reseeks += positioned ? 1 : 0;
+                seek(targetDay);
+            } else if (targetDay - epochDay > MAXIMUM_STEP_DAYS) {
+                seek(targetDay);
+            }
+            while (epochDay < targetDay) {
+                nextDay();
+            }
+            while (shift < shifts.length && shifts[shift + 1] <= targetNanoOfDay) {
+                passedInDay += shifts[shift + 1] - shifts[shift];
+                shift += 2;
+            }
+            nanoOfDay = targetNanoOfDay;
+            earliest = false;
+            epoch = dayBase + passedInDay + (shift < shifts.length ? Math.max(0, targetNanoOfDay - shifts[shift]) : 0);
+            return epoch;
+        }
+
+        // Moves to the earliest time at which the business epoch reaches target
+        private LocalDateTime reach(long target) {
+            if (positioned && earliest && target == epoch) {
+                return LocalDate.ofEpochDay(epochDay).atStartOfDay().plusNanos(nanoOfDay);
+            }
+            if (!positioned || target <= epoch) {
+                reseeks += positioned ? 1 : 0;
+                seek(index.dayReaching(target));
+            }
+            while (dayBase + dayNanos < target) {
+                if ((target - dayBase) / Math.max(1, index.getWeekNanos()) > MAXIMUM_STEP_DAYS / 7) {
+                    seek(index.dayReaching(target));
+                } else {
+                    nextDay();
+                }
+            }
+            long needed = target - dayBase - passedInDay;
+            while (needed > shifts[shift + 1] - shifts[shift]) {
+                passedInDay += shifts[shift + 1] - shifts[shift];
+                needed -= shifts[shift + 1] - shifts[shift];
+                shift += 2;
+            }
+            nanoOfDay = shifts[shift] + needed;
+            epoch = target;
+            earliest = true;
+            return LocalDate.ofEpochDay(epochDay).atStartOfDay().plusNanos(nanoOfDay);
+        }
+
+        private void seek(long targetDay) {
+            positioned = true;
+            epochDay = targetDay;
+            dayBase = index.nanosBefore(targetDay);
+            enterDay();
+        }
+
+        private void nextDay() {
+            dayBase += dayNanos;
+            epochDay++;
+            enterDay();
+        }
+
+        private void enterDay() {
+            DayOfWeek dayOfWeek = DayOfWeek.of((int) Math.floorMod(epochDay + 3, 7) + 1);
+            boolean holiday = index.isHoliday(epochDay);
+            shifts = holiday ? NO_SHIFTS : timeline.getShifts(dayOfWeek);
+            dayNanos = holiday ? 0 : timeline.getDayNanos(dayOfWeek);
+            shift = 0;
+            passedInDay = 0;
+            nanoOfDay = 0;
+            epoch = dayBase;
+            earliest = false;
+        }
+    }
+
+    private final BusinessHoursCalculator calculator;
+    private final BusinessTimeline timeline;
+    private final boolean compiled;
+    private final Position start = new Position();
+    private final Position end = new Position();
+    private BusinessEpochIndex index;
+    private long reseeks;
+
+    public BusinessHoursCursor(BusinessHoursCalculator calculator) {
+        this.calculator = calculator;
+        this.timeline = calculator.getTimeline();
+        this.compiled = timeline.isExact() && timeline.getWeekNanos() > 0;
+    }
+
+    public BusinessHoursCalculator getCalculator() {
+        return calculator;
+    }
+
+    // Queries that arrived out of order and had to seek through the epoch index
+    public long getReseekCount() {
+        return reseeks;
+    }
+
+    public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration) {
+        if (!compiled || duration.isZero() || duration.isNegative()
+                || !BusinessHoursCalculator.fitsBusinessEpoch(startDateTime.toLocalDate().toEpochDay(), duration.toDays() + 1)) {
+            return calculator.addBusinessHours(startDateTime, duration);
+        }
+        refreshIndex();
+        long startEpoch = start.moveTo(startDateTime.toLocalDate().toEpochDay(), startDateTime.toLocalTime().toNanoOfDay());
+        LocalDateTime result = end.reach(startEpoch + duration.toNanos());
+        if (result.toLocalDate().toEpochDay() - startDateTime.toLocalDate().toEpochDay() >= calculator.getMaximumDaysScanned()) {
+            // Let the calculator report running past its guard
+            return calculator.addBusinessHours(startDateTime, duration);
+        }
+        return result;
+    }
+
+    public Duration calculateWorkingDurationBetween(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        if (!compiled || startDateTime.isAfter(endDateTime)
+                || !BusinessHoursCalculator.fitsBusinessEpoch(startDateTime.toLocalDate().toEpochDay(), 0)
+                || !BusinessHoursCalculator.fitsBusinessEpoch(endDateTime.toLocalDate().toEpochDay(), 0)) {
+            return calculator.calculateWorkingDurationBetween(startDateTime, endDateTime);
+        }
+        refreshIndex();
+        long startEpoch = start.moveTo(startDateTime.toLocalDate().toEpochDay(), startDateTime.toLocalTime().toNanoOfDay());
+        long endEpoch = end.moveTo(endDateTime.toLocalDate().toEpochDay(), endDateTime.toLocalTime().toNanoOfDay());
+        return Duration.ofNanos(endEpoch - startEpoch);
+    }
+
+    // As BusinessHoursCalculator.toBusinessEpoch, moving the start position
+    public long toBusinessEpoch(LocalDateTime dateTime) {
+        if (!compiled) {
+            return calculator.toBusinessEpoch(dateTime);
+        }
+        refreshIndex();
+        return start.moveTo(dateTime.toLocalDate().toEpochDay(), dateTime.toLocalTime().toNanoOfDay());
+    }
+
+    private void refreshIndex() {
+        BusinessEpochIndex current = calculator.getEpochIndex();
+        if (current != index) {
+            // The holidays changed, so remembered positions may no longer be right
+            index = current;
+            start.positioned = false;
+            end.positioned = false;
+        }
+    }
+}
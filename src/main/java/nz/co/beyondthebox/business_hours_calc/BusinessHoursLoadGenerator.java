@@ -0,0 +1,109 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Drives a BusinessHoursServer with a random mix of add, between and open queries from a number of concurrent
+// clients, for load testing a server on localhost.
+public class BusinessHoursLoadGenerator {
+    private final URI baseUri;
+    private final List<String> calendarNames;
+    private final HttpClient client;
+    private LocalDateTime from = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private Duration range = Duration.ofDays(365);
+    private long seed = System.nanoTime();
+
+    // baseUri is where the server listens, e.g. http://localhost:8080
+    public BusinessHoursLoadGenerator(URI baseUri, List<String> calendarNames) {
+        if (calendarNames.isEmpty()) {
+            throw new IllegalArgumentException("calendarNames must not be empty.");
+        }
+        this.baseUri = baseUri;
+        this.calendarNames = new ArrayList<>(calendarNames);
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    // Query times are drawn from range after from
+    public BusinessHoursLoadGenerator setRange(LocalDateTime from, Duration range) {
+        if (range.isNegative() || range.isZero()) {
+            throw new IllegalArgumentException("range must be a positive number.");
+        }
+        this.from = from;
+        this.range = range;
+        return this;
+    }
+
+    public BusinessHoursLoadGenerator setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public LoadReport run(int requests, int concurrency) throws InterruptedException {
+        if (requests < 0) {
+            throw new IllegalArgumentException("requests must not be negative.");
+        }
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency must be a positive number.");
+        }
+        AtomicLong remaining = new AtomicLong(requests);
+        LongAdder failures = new LongAdder();
+        LongAdder latencyNanos = new LongAdder();
+        AtomicLong maximumLatencyNanos = new AtomicLong();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        long startNanos = System.nanoTime();
+        try {
+            for (int i = 0; i < concurrency; i++) {
+                Random random = new Random(seed + i);
+                clients.execute(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long requestNanos = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(HttpRequest.newBuilder(randomQuery(random)).GET().build(), HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() != 200) {
+                                failures.increment();
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            failures.increment();
+                        }
+                        long latency = System.nanoTime() - requestNanos;
+                        latencyNanos.add(latency);
+                        maximumLatencyNanos.accumulateAndGet(latency, Math::max);
+                    }
+                });
+            }
+        } finally {
+            clients.shutdown();
+        }
+        clients.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        return new LoadReport(requests, failures.sum(), Duration.ofNanos(System.nanoTime() - startNanos),
+                Duration.ofNanos(requests == 0 ? 0 : latencyNanos.sum() / requests), Duration.ofNanos(maximumLatencyNanos.get()));
+    }
+
+    private URI randomQuery(Random random) {
+        String calendar = URLEncoder.encode(calendarNames.get(random.nextInt(calendarNames.size())), StandardCharsets.UTF_8);
+        LocalDateTime start = from.plusMinutes((long) (random.nextDouble() * range.toMinutes()));
+        switch (random.nextInt(3)) {
+            case 0:
+                return baseUri.resolve("/calendars/" + calendar + "/add?start=" + start + "&duration=" + Duration.ofMinutes(random.nextInt(60 * 80)));
+            case 1:
+                return baseUri.resolve("/calendars/" + calendar + "/between?start=" + start + "&end=" + start.plusMinutes(random.nextInt(60 * 24 * 30)));
+            default:
+                return baseUri.resolve("/calendars/" + calendar + "/open?at=" + start);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Serves calendar queries over local HTTP with JSON responses, so services can share one set of loaded
+// calendars instead of each embedding its own:
+//
+//   GET /calendars/{name}/add?start=2023-10-20T15:00&duration=PT4H[&minimum=PT7H]   {"result":"2023-10-23T11:00"}
+//   GET /calendars/{name}/between?start=...&end=...[&minimum=...]                   {"result":"PT12H"}
+//   GET /calendars/{name}/open?at=...                                               {"result":true}
+//
+// Queries for the same calendar that arrive together are coalesced: whichever handler finds the calendar idle
+// answers what is queued for it in batches, running the plain between queries through a BusinessBatchCalculator.
+// After a few batches it hands whatever is still queued to a drain thread the server owns, so its own response
+// isn't held up indefinitely under load. Handing off to the handler executor instead could deadlock a bounded
+// pool whose threads are all waiting on queued queries. Each query reads the holidays current when it is answered, so a batch
+// that straddles a holiday change can answer some queries before it and some after. Handlers run on the
+// executor, a cached thread pool unless one is set before start, e.g. a virtual thread per task executor on
+// runtimes that have them.
+public class BusinessHoursServer implements AutoCloseable {
+    private static final String CONTEXT = "/calendars/";
+    private static final int MAXIMUM_DRAIN_BATCHES = 4;
+
+    private static final class Query {
+        private final String operation;
+        private final Map<String, String> parameters;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+
+        private Query(String operation, Map<String, String> parameters) {
+            this.operation = operation;
+            this.parameters = parameters;
+        }
+
+        private LocalDateTime dateTime(String name) {
+            return LocalDateTime.parse(required(name));
+        }
+
+        private Duration duration(String name) {
+            return Duration.parse(required(name));
+        }
+
+        private Duration minimum() {
+            return parameters.containsKey("minimum") ? duration("minimum") : null;
+        }
+
+        private String required(String name) {
+            String value = parameters.get(name);
+            if (value == null) {
+                throw new IllegalArgumentException(name + " is required.");
+            }
+            return value;
+        }
+    }
+
+    private final class Calendar {
+        private final BusinessHoursCalculator calculator;
+        private final BusinessBatchCalculator batchCalculator;
+        private final Queue<Query> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Calendar(BusinessHoursCalculator calculator) {
+            this.calculator = calculator;
+            this.batchCalculator = new BusinessBatchCalculator(calculator);
+        }
+
+        private void submit(Query query) {
+            queue.add(query);
+            drain();
+        }
+
+        private void drain() {
+            // Keep draining while queries are left behind and nobody else has picked them up
+            int drained = 0;
+            while (!queue.isEmpty() && draining.compareAndSet(false, true)) {
+                try {
+                    List<Query> batch = new ArrayList<>();
+                    Query next;
+                    while (batch.size() < maximumBatchSize && (next = queue.poll()) != null) {
+                        batch.add(next);
+                    }
+                    evaluate(batch);
+                } finally {
+                    draining.set(false);
+                }
+                if (++drained == MAXIMUM_DRAIN_BATCHES && !queue.isEmpty()) {
+                    try {
+                        drainExecutor.execute(this::drain);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // Nothing else will pick them up, so carry on here
+                        drained = 0;
+                    }
+                }
+            }
+        }
+
+        private void evaluate(List<Query> batch) {
+            batches.increment();
+            queries.add(batch.size());
+            List<Query> between = new ArrayList<>();
+            List<LocalDateTime[]> ranges = new ArrayList<>();
+            for (Query query : batch) {
+                try {
+                    if (query.operation.equals("between") && query.minimum() == null && calculator.getTimeline().isExact()) {
+                        LocalDateTime start = query.dateTime("start");
+                        LocalDateTime end = query.dateTime("end");
+                        if (!start.isAfter(end) && inEpochRange(start) && inEpochRange(end)) {
+                            between.add(query);
+                            ranges.add(new LocalDateTime[]{start, end});
+                            continue;
+                        }
+                    }
+                    query.result.complete(answer(query));
+                } catch (RuntimeException e) {
+                    query.result.completeExceptionally(e);
+                }
+            }
+            if (between.isEmpty()) {
+                return;
+            }
+            long[] startTimes = new long[between.size()];
+            long[] endTimes = new long[between.size()];
+            for (int i = 0; i < between.size(); i++) {
+                startTimes[i] = toEpochNanos(ranges.get(i)[0]);
+                endTimes[i] = toEpochNanos(ranges.get(i)[1]);
+            }
+            try {
+                long[] nanos = batchCalculator.calculateWorkingNanosBetween(startTimes, endTimes);
+                for (int i = 0; i < between.size(); i++) {
+                    between.get(i).result.complete(quote(Duration.ofNanos(nanos[i]).toString()));
+                }
+            } catch (RuntimeException e) {
+                between.forEach(query -> query.result.completeExceptionally(e));
+            }
+        }
+
+        private String answer(Query query) {
+            switch (query.operation) {
+                case "add":
+                    return quote(calculator.addBusinessHours(query.dateTime("start"), query.duration("duration"), query.minimum()).toString());
+                case "between":
+                    return quote(calculator.calculateWorkingDurationBetween(query.dateTime("start"), query.dateTime("end"), query.minimum()).toString());
+                default:
+                    return Boolean.toString(calculator.isOpen(query.dateTime("at")));
+            }
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final ConcurrentMap<String, Calendar> calendars = new ConcurrentHashMap<>();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private volatile int maximumBatchSize = 1024;
+    private Executor executor;
+    private ExecutorService ownedExecutor;
+    private volatile ExecutorService drainExecutor;
+    private HttpServer server;
+
+    // Port 0 picks a free port, see getPort
+    public BusinessHoursServer(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public BusinessHoursServer addCalendar(String name, BusinessHoursCalculator calculator) {
+        calendars.put(name, new Calendar(calculator));
+        return this;
+    }
+
+    public BusinessHoursServer removeCalendar(String name) {
+        calendars.remove(name);
+        return this;
+    }
+
+    public synchronized BusinessHoursServer setExecutor(Executor executor) {
+        if (server != null) {
+            throw new IllegalStateException("The executor must be set before the server is started.");
+        }
+        this.executor = executor;
+        return this;
+    }
+
+    public BusinessHoursServer setMaximumBatchSize(int maximumBatchSize) {
+        if (maximumBatchSize <= 0) {
+            throw new IllegalArgumentException("maximumBatchSize must be a positive number.");
+        }
+        this.maximumBatchSize = maximumBatchSize;
+        return this;
+    }
+
+    public synchronized BusinessHoursServer start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("The server has already been started.");
+        }
+        HttpServer server = HttpServer.create(address, 0);
+        if (executor == null) {
+            AtomicInteger threads = new AtomicInteger();
+            ownedExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "business-hours-server-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        drainExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "business-hours-server-drain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor == null ? ownedExecutor : executor);
+        server.createContext(CONTEXT, this::handle);
+        server.start();
+        this.server = server;
+        return this;
+    }
+
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("The server has not been started.");
+        }
+        return server.getAddress().getPort();
+    }
+
+    // Evaluation passes over queued queries; queries per batch shows how much coalescing happened
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+        if (drainExecutor != null) {
+            drainExecutor.shutdown();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, error("Only GET is supported."));
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().substring(CONTEXT.length()).split("/");
+            Calendar calendar = path.length == 2 ? calendars.get(path[0]) : null;
+            if (calendar == null || !Set.of("add", "between", "open").contains(path[1])) {
+                respond(exchange, 404, error("Unknown calendar query " + exchange.getRequestURI().getPath()));
+                return;
+            }
+            Query query = new Query(path[1], parameters(exchange.getRequestURI().getRawQuery()));
+            calendar.submit(query);
+            respond(exchange, 200, "{\"result\":" + query.result.join() + "}");
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException || cause instanceof DateTimeParseException) {
+                respond(exchange, 400, error(cause.getMessage()));
+            } else if (cause instanceof IllegalStateException) {
+                respond(exchange, 422, error(cause.getMessage()));
+            } else {
+                respond(exchange, 500, error(String.valueOf(cause)));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static Map<String, String> parameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(String.valueOf(message)) + "}";
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char character : value.toCharArray()) {
+            if (character == '"' || character == '\\') {
+                quoted.append('\\').append(character);
+            } else if (character < ' ') {
+                quoted.append(String.format("\\u%04x", (int) character));
+            } else {
+                quoted.append(character);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    // Epoch nanoseconds only reach out to about 1677 and 2262 either side of 1970
+    private static boolean inEpochRange(LocalDateTime dateTime) {
+        return dateTime.getYear() > 1680 && dateTime.getYear() < 2260;
+    }
+
+    private static long toEpochNanos(LocalDateTime dateTime) {
+        return dateTime.toLocalDate().toEpochDay() * BusinessTimeline.NANOS_PER_DAY + dateTime.toLocalTime().toNanoOfDay();
+    }
+}
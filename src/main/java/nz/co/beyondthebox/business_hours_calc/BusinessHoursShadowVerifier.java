@@ -0,0 +1,179 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Answers calls from the calculator as usual, and re-runs a sample of them through the original day walk on
+// another thread to check the optimised paths agree. Mismatches are logged with their inputs through
+// System.Logger. Samples that arrive while the verification queue is full are dropped rather than holding up
+// the caller. The day walk reads the holidays when it runs, so samples whose holidays changed between the call
+// and the day walk finishing are counted as stale rather than verified.
+public class BusinessHoursShadowVerifier implements AutoCloseable {
+    private static final System.Logger LOGGER = System.getLogger(BusinessHoursShadowVerifier.class.getName());
+    private static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    private final BusinessHoursCalculator calculator;
+    private final double sampleRate;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder optimisedNanos = new LongAdder();
+    private final LongAdder referenceNanos = new LongAdder();
+
+    // Verifies on a single daemon thread of its own, which close shuts down
+    public BusinessHoursShadowVerifier(BusinessHoursCalculator calculator, double sampleRate) {
+        this(calculator, sampleRate, new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(DEFAULT_QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "business-hours-shadow-verifier");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    // Verifies on the given executor. An executor that throws RejectedExecutionException drops the sample.
+    public BusinessHoursShadowVerifier(BusinessHoursCalculator calculator, double sampleRate, Executor executor) {
+        this(calculator, sampleRate, executor, false);
+    }
+
+    private BusinessHoursShadowVerifier(BusinessHoursCalculator calculator, double sampleRate, Executor executor, boolean owned) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1.");
+        }
+        this.calculator = calculator;
+        this.sampleRate = sampleRate;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+    }
+
+    public BusinessHoursCalculator getCalculator() {
+        return calculator;
+    }
+
+    public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration) {
+        return addBusinessHours(startDateTime, duration, null);
+    }
+
+    public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration, Duration minimumDurationPerDay) {
+        if (!sample()) {
+            return calculator.addBusinessHours(startDateTime, duration, minimumDurationPerDay);
+        }
+        long version = calculator.getHolidayStore().getVersion();
+        long start = System.nanoTime();
+        LocalDateTime result = calculator.addBusinessHours(startDateTime, duration, minimumDurationPerDay);
+        long elapsed = System.nanoTime() - start;
+        verify(version, elapsed, result, () -> calculator.addBusinessHoursByDayWalk(startDateTime, duration, minimumDurationPerDay),
+                () -> "addBusinessHours(" + startDateTime + ", " + duration + ", " + minimumDurationPerDay + ")");
+        return result;
+    }
+
+    public Duration calculateWorkingDurationBetween(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return calculateWorkingDurationBetween(startDateTime, endDateTime, null);
+    }
+
+    public Duration calculateWorkingDurationBetween(LocalDateTime startDateTime, LocalDateTime endDateTime, Duration minimumDurationPerDay) {
+        if (!sample()) {
+            return calculator.calculateWorkingDurationBetween(startDateTime, endDateTime, minimumDurationPerDay);
+        }
+        long version = calculator.getHolidayStore().getVersion();
+        long start = System.nanoTime();
+        Duration result = calculator.calculateWorkingDurationBetween(startDateTime, endDateTime, minimumDurationPerDay);
+        long elapsed = System.nanoTime() - start;
+        verify(version, elapsed, result, () -> calculator.calculateWorkingDurationBetweenByDayWalk(startDateTime, endDateTime, minimumDurationPerDay),
+                () -> "calculateWorkingDurationBetween(" + startDateTime + ", " + endDateTime + ", " + minimumDurationPerDay + ")");
+        return result;
+    }
+
+    // Calls that were picked for verification, including those dropped
+    public long getSampledCount() {
+        return sampled.sum();
+    }
+
+    public long getVerifiedCount() {
+        return verified.sum();
+    }
+
+    public long getMismatchCount() {
+        return mismatches.sum();
+    }
+
+    // Samples skipped because the verification queue was full
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    // Samples skipped because the holidays changed before the day walk could check them
+    public long getStaleCount() {
+        return stale.sum();
+    }
+
+    public double getDisagreementRate() {
+        long verified = this.verified.sum();
+        return verified == 0 ? 0 : (double) mismatches.sum() / verified;
+    }
+
+    // How many times longer the day walk took than the optimised path, over every verified call
+    public double getSpeedup() {
+        long optimised = optimisedNanos.sum();
+        return optimised == 0 ? 0 : (double) referenceNanos.sum() / optimised;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+            ownedExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private boolean sample() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private <T> void verify(long version, long elapsed, T result, Supplier<T> reference, Supplier<String> call) {
+        sampled.increment();
+        try {
+            executor.execute(() -> {
+                if (calculator.getHolidayStore().getVersion() != version) {
+                    stale.increment();
+                    return;
+                }
+                T expected;
+                long start = System.nanoTime();
+                try {
+                    expected = reference.get();
+                } catch (RuntimeException e) {
+                    if (calculator.getHolidayStore().getVersion() != version) {
+                        stale.increment();
+                        return;
+                    }
+                    verified.increment();
+                    mismatches.increment();
+                    LOGGER.log(System.Logger.Level.WARNING, "Shadow verification of " + calculator.getCalendarName() + " " + call.get()
+                            + " returned " + result + " but the day walk threw", e);
+                    return;
+                }
+                if (calculator.getHolidayStore().getVersion() != version) {
+                    stale.increment();
+                    return;
+                }
+                referenceNanos.add(System.nanoTime() - start);
+                optimisedNanos.add(elapsed);
+                verified.increment();
+                if (!Objects.equals(expected, result)) {
+                    mismatches.increment();
+                    LOGGER.log(System.Logger.Level.WARNING, "Shadow verification of " + calculator.getCalendarName() + " " + call.get()
+                            + " returned " + result + " but the day walk returned " + expected);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+}
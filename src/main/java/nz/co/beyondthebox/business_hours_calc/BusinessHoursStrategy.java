@@ -0,0 +1,14 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+// How BusinessHoursCalculator evaluated a call, see BusinessHoursCalculator.setShiftWalkDays
+public enum BusinessHoursStrategy {
+    // The original walk over the BusinessDay shifts, used when the compiled timeline can't give the same answer,
+    // for zero durations and past the compiled horizon
+    DAY_WALK,
+    // Walks the compiled shifts a day at a time, cheapest for calls that only span a few days
+    SHIFT_WALK,
+    // Skips whole years through the cumulative year indexes
+    YEAR_INDEX,
+    // Maps both ends through the business epoch, used for long calls without a minimum duration per day
+    EPOCH_INDEX
+}
@@ -0,0 +1,34 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDateTime;
+
+public class BusinessHoursTransition<K> {
+    private final K calendar;
+    private final LocalDateTime dateTime;
+    private final boolean opening;
+
+    public BusinessHoursTransition(K calendar, LocalDateTime dateTime, boolean opening) {
+        this.calendar = calendar;
+        this.dateTime = dateTime;
+        this.opening = opening;
+    }
+
+    // The key the calendar was added to the publisher with
+    public K getCalendar() {
+        return calendar;
+    }
+
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    // True when the calendar opens at getDateTime, false when it closes
+    public boolean isOpening() {
+        return opening;
+    }
+
+    @Override
+    public String toString() {
+        return calendar + (opening ? " opens at " : " closes at ") + dateTime;
+    }
+}
@@ -0,0 +1,203 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+// Publishes the moments calendars open and close. Every calendar's next transition sits in one priority queue,
+// so a single scheduler thread can sleep until the earliest of them however many calendars are registered.
+// Calendar times are read in the zone of the clock. Holiday changes reschedule the affected calendars.
+//
+// Transitions can also be published without the scheduler thread by calling publishDue, which together with a
+// VirtualClock lets tests step through time.
+public class BusinessHoursTransitionPublisher<K> implements Flow.Publisher<BusinessHoursTransition<K>>, AutoCloseable {
+    private final class Calendar implements Consumer<HolidayChange> {
+        private final K key;
+        private final BusinessHoursCalculator calculator;
+        // Transitions up to here have been published
+        private LocalDateTime scheduledFrom;
+        private LocalDateTime nextTransition;
+        private Instant nextInstant;
+
+        private Calendar(K key, BusinessHoursCalculator calculator) {
+            this.key = key;
+            this.calculator = calculator;
+        }
+
+        @Override
+        public void accept(HolidayChange change) {
+            synchronized (lock) {
+                if (calendars.get(key) == this) {
+                    queue.remove(this);
+                    schedule(this, scheduledFrom);
+                }
+            }
+            wakeUp();
+        }
+    }
+
+    private final Clock clock;
+    private final SubmissionPublisher<BusinessHoursTransition<K>> publisher;
+    private final Object lock = new Object();
+    private final Map<K, Calendar> calendars = new HashMap<>();
+    private final PriorityQueue<Calendar> queue = new PriorityQueue<>(Comparator.comparing((Calendar calendar) -> calendar.nextInstant));
+    private final Runnable clockListener = this::wakeUp;
+    private Thread scheduler;
+    private boolean closed;
+
+    public BusinessHoursTransitionPublisher() {
+        this(Clock.systemDefaultZone());
+    }
+
+    public BusinessHoursTransitionPublisher(Clock clock) {
+        this.clock = clock;
+        this.publisher = new SubmissionPublisher<>();
+        if (clock instanceof VirtualClock) {
+            ((VirtualClock) clock).addListener(clockListener);
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super BusinessHoursTransition<K>> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    // Replaces any calendar already added with the same key. Only transitions after the current time are published.
+    public void addCalendar(K key, BusinessHoursCalculator calculator) {
+        Calendar calendar = new Calendar(key, calculator);
+        synchronized (lock) {
+            removeCalendar(key);
+            calendars.put(key, calendar);
+            calculator.getHolidayStore().addChangeListener(calendar);
+            schedule(calendar, LocalDateTime.now(clock));
+        }
+        wakeUp();
+    }
+
+    public boolean removeCalendar(K key) {
+        synchronized (lock) {
+            Calendar calendar = calendars.remove(key);
+            if (calendar == null) {
+                return false;
+            }
+            calendar.calculator.getHolidayStore().removeChangeListener(calendar);
+            queue.remove(calendar);
+            return true;
+        }
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return calendars.size();
+        }
+    }
+
+    // The earliest transition still to be published, or null when no calendar will change again
+    public LocalDateTime getNextTransition() {
+        synchronized (lock) {
+            Calendar next = queue.peek();
+            return next == null ? null : next.nextTransition;
+        }
+    }
+
+    // Publishes every transition up to the current time of the clock, in time order, and returns how many there were
+    public int publishDue() {
+        List<BusinessHoursTransition<K>> due = new ArrayList<>();
+        synchronized (lock) {
+            Instant now = clock.instant();
+            while (!queue.isEmpty() && !queue.peek().nextInstant.isAfter(now)) {
+                Calendar calendar = queue.poll();
+                LocalDateTime transition = calendar.nextTransition;
+                due.add(new BusinessHoursTransition<>(calendar.key, transition, calendar.calculator.isOpen(transition)));
+                schedule(calendar, transition);
+            }
+        }
+        for (BusinessHoursTransition<K> transition : due) {
+            // Blocks while a subscriber's buffer is full rather than dropping transitions
+            publisher.submit(transition);
+        }
+        return due.size();
+    }
+
+    // Starts the scheduler thread, which publishes each transition as the clock reaches it
+    public void start() {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("The publisher has been closed.");
+            }
+            if (scheduler != null) {
+                return;
+            }
+            scheduler = new Thread(this::runScheduler, "business-hours-transitions");
+            scheduler.setDaemon(true);
+            scheduler.start();
+        }
+    }
+
+    // Stops the scheduler thread and completes the subscribers
+    @Override
+    public void close() {
+        Thread scheduler;
+        synchronized (lock) {
+            closed = true;
+            scheduler = this.scheduler;
+            for (Calendar calendar : calendars.values()) {
+                calendar.calculator.getHolidayStore().removeChangeListener(calendar);
+            }
+            lock.notifyAll();
+        }
+        if (clock instanceof VirtualClock) {
+            ((VirtualClock) clock).removeListener(clockListener);
+        }
+        if (scheduler != null && scheduler != Thread.currentThread()) {
+            try {
+                scheduler.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        publisher.close();
+    }
+
+    private void runScheduler() {
+        while (true) {
+            publishDue();
+            synchronized (lock) {
+                if (closed) {
+                    return;
+                }
+                Calendar next = queue.peek();
+                long waitMillis = next == null ? 0 : Duration.between(clock.instant(), next.nextInstant).toMillis() + 1;
+                if (next != null && waitMillis <= 0) {
+                    continue;
+                }
+                try {
+                    // Adding calendars, holiday changes and virtual clock moves all wake the scheduler early
+                    lock.wait(waitMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private void schedule(Calendar calendar, LocalDateTime after) {
+        calendar.scheduledFrom = after;
+        calendar.nextTransition = calendar.calculator.nextTransition(after);
+        if (calendar.nextTransition != null) {
+            calendar.nextInstant = calendar.nextTransition.atZone(clock.getZone()).toInstant();
+            queue.add(calendar);
+        }
+    }
+}
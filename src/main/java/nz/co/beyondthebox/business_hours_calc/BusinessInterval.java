@@ -0,0 +1,28 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDateTime;
+
+public class BusinessInterval {
+    private final LocalDateTime startDateTime;
+    private final LocalDateTime endDateTime;
+
+    public BusinessInterval(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        if (startDateTime.isAfter(endDateTime)) {
+            throw new IllegalArgumentException("startDateTime must be before endDateTime.");
+        }
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+    }
+
+    public LocalDateTime getStartDateTime() {
+        return startDateTime;
+    }
+
+    public LocalDateTime getEndDateTime() {
+        return endDateTime;
+    }
+
+    public boolean isEmpty() {
+        return startDateTime.equals(endDateTime);
+    }
+}
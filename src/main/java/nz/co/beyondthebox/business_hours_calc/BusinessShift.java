@@ -19,8 +19,24 @@ public class BusinessShift implements Comparable<BusinessShift>{
         return endTime;
     }
 
+    // Ordered by start time, then end time, so shifts sharing a start time are both kept in a BusinessDay
     @Override
     public int compareTo(BusinessShift other) {
-        return this.startTime.compareTo(other.startTime);
+        int comparison = this.startTime.compareTo(other.startTime);
+        return comparison != 0 ? comparison : this.endTime.compareTo(other.endTime);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof BusinessShift)) {
+            return false;
+        }
+        BusinessShift shift = (BusinessShift) other;
+        return startTime.equals(shift.startTime) && endTime.equals(shift.endTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return startTime.hashCode() * 31 + endTime.hashCode();
     }
 }
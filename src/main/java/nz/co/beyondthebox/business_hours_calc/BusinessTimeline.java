@@ -0,0 +1,250 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Compiled, array based form of a business week. Every day holds its open time as sorted, merged
+// [start, end) nano-of-day pairs, with shifts that cross midnight already split onto the next day. Keeping
+// everything as fixed-point nanoseconds lets sub-second shifts compile exactly.
+final class BusinessTimeline {
+    static final int SECONDS_PER_DAY = 86_400;
+    static final long NANOS_PER_SECOND = 1_000_000_000L;
+    static final long NANOS_PER_DAY = SECONDS_PER_DAY * NANOS_PER_SECOND;
+
+    private final long[][] shifts;
+    private final boolean[] businessDays;
+    private final long[] dayNanos;
+    private final long[] longestShiftNanos;
+    // Nano of day after which the start of a query ignores the rest of the day, see withMinimumDurationPerDay
+    private final long[] extensionStarts;
+    private final boolean exact;
+    private final ConcurrentMap<Integer, BusinessYearIndex> yearIndexes = new ConcurrentHashMap<>();
+
+    private BusinessTimeline(long[][] shifts, boolean[] businessDays, long[] extensionStarts, boolean exact) {
+        this.shifts = shifts;
+        this.businessDays = businessDays;
+        this.extensionStarts = extensionStarts;
+        this.exact = exact;
+        this.dayNanos = new long[7];
+        this.longestShiftNanos = new long[7];
+        for (int day = 0; day < 7; day++) {
+            for (int i = 0; i < shifts[day].length; i += 2) {
+                dayNanos[day] += shifts[day][i + 1] - shifts[day][i];
+                longestShiftNanos[day] = Math.max(longestShiftNanos[day], shifts[day][i + 1] - shifts[day][i]);
+            }
+        }
+    }
+
+    // The same compiled shifts with a year index cache of its own, for a calculator whose holidays are versioned
+    // separately from this one's
+    BusinessTimeline withoutYearIndexes() {
+        return new BusinessTimeline(shifts, businessDays, extensionStarts, exact);
+    }
+
+    static BusinessTimeline compile(Map<DayOfWeek, BusinessDay> businessDays) {
+        List<List<long[]>> ranges = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            ranges.add(new ArrayList<>());
+        }
+        boolean[] flags = new boolean[7];
+        boolean exact = true;
+        for (Map.Entry<DayOfWeek, BusinessDay> entry : businessDays.entrySet()) {
+            int day = index(entry.getKey());
+            flags[day] = true;
+            exact &= isWalkedAsCompiled(entry.getValue());
+            for (BusinessShift shift : entry.getValue().getShifts()) {
+                long start = shift.getStartTime().toNanoOfDay();
+                long end = endNanoOfDay(shift);
+                if (end < start) {
+                    // Shifts that cross midnight continue at the start of the following day
+                    ranges.get(day).add(new long[]{start, NANOS_PER_DAY});
+                    ranges.get((day + 1) % 7).add(new long[]{0, end});
+                    flags[(day + 1) % 7] |= end > 0;
+                } else if (end > start) {
+                    ranges.get(day).add(new long[]{start, end});
+                }
+            }
+        }
+        long[][] shifts = new long[7][];
+        long[] extensionStarts = new long[7];
+        for (int day = 0; day < 7; day++) {
+            shifts[day] = merge(ranges.get(day));
+            extensionStarts[day] = NANOS_PER_DAY;
+        }
+        return new BusinessTimeline(shifts, flags, extensionStarts, exact);
+    }
+
+    // The day walk in BusinessHoursCalculator reads BusinessDay shifts directly. Only days made of non-overlapping
+    // shifts that don't wrap past midnight, and whose recorded length matches those shifts, give the same answers
+    // when walked in compiled form.
+    private static boolean isWalkedAsCompiled(BusinessDay businessDay) {
+        if (businessDay.getShifts().isEmpty()) {
+            return false;
+        }
+        long totalNanos = 0;
+        long previousEnd = 0;
+        for (BusinessShift shift : businessDay.getShifts()) {
+            long start = shift.getStartTime().toNanoOfDay();
+            long end = endNanoOfDay(shift);
+            if (end <= start || start < previousEnd) {
+                return false;
+            }
+            totalNanos += end - start;
+            previousEnd = end;
+        }
+        return businessDay.getBusinessDayLength().equals(Duration.ofNanos(totalNanos));
+    }
+
+    private static long endNanoOfDay(BusinessShift shift) {
+        return shift.getEndTime().equals(LocalTime.MIDNIGHT) ? NANOS_PER_DAY : shift.getEndTime().toNanoOfDay();
+    }
+
+    private static long[] merge(List<long[]> ranges) {
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        long[] merged = new long[ranges.size() * 2];
+        int length = 0;
+        for (long[] range : ranges) {
+            if (length > 0 && range[0] <= merged[length - 1]) {
+                merged[length - 1] = Math.max(merged[length - 1], range[1]);
+            } else {
+                merged[length++] = range[0];
+                merged[length++] = range[1];
+            }
+        }
+        return Arrays.copyOf(merged, length);
+    }
+
+    // The effective timeline when every business day is topped up to at least minimumDurationPerDay, which
+    // the day walk does by running the last shift of a short day on for the missing time. A query that starts
+    // after the original end of that shift gets nothing more from the day.
+    BusinessTimeline withMinimumDurationPerDay(Duration minimumDurationPerDay) {
+        boolean exactVariant = exact;
+        // Minimums of a day or more always run on past midnight, and saturating keeps huge ones from overflowing
+        long minimumNanos = minimumDurationPerDay.compareTo(Duration.ofDays(1)) >= 0 ? NANOS_PER_DAY : minimumDurationPerDay.toNanos();
+        long[][] extendedShifts = new long[7][];
+        long[] extendedStarts = new long[7];
+        for (int day = 0; day < 7; day++) {
+            extendedShifts[day] = shifts[day];
+            extendedStarts[day] = NANOS_PER_DAY;
+            long deficit = minimumNanos - dayNanos[day];
+            if (!businessDays[day] || deficit <= 0 || shifts[day].length == 0) {
+                continue;
+            }
+            long lastEnd = shifts[day][shifts[day].length - 1];
+            if (lastEnd + deficit >= NANOS_PER_DAY) {
+                // Running on into the next day is not something the compiled form can express
+                exactVariant = false;
+                continue;
+            }
+            extendedShifts[day] = shifts[day].clone();
+            extendedShifts[day][shifts[day].length - 1] = lastEnd + deficit;
+            extendedStarts[day] = lastEnd;
+        }
+        return new BusinessTimeline(extendedShifts, businessDays, extendedStarts, exactVariant);
+    }
+
+    static int index(DayOfWeek dayOfWeek) {
+        return dayOfWeek.getValue() - 1;
+    }
+
+    // Whether BusinessHoursCalculator may answer from this timeline instead of walking the BusinessDays
+    boolean isExact() {
+        return exact;
+    }
+
+    boolean isBusinessDay(DayOfWeek dayOfWeek) {
+        return businessDays[index(dayOfWeek)];
+    }
+
+    // Flattened [start, end) nano-of-day pairs, do not modify
+    long[] getShifts(DayOfWeek dayOfWeek) {
+        return shifts[index(dayOfWeek)];
+    }
+
+    long getDayNanos(DayOfWeek dayOfWeek) {
+        return dayNanos[index(dayOfWeek)];
+    }
+
+    // Length of the longest merged shift on the day, ignoring any continuation past midnight
+    long getLongestShiftNanos(DayOfWeek dayOfWeek) {
+        return longestShiftNanos[index(dayOfWeek)];
+    }
+
+    // Whether the last shift of the day runs up to midnight, and so may carry on into the next day
+    boolean isOpenAtMidnight(DayOfWeek dayOfWeek) {
+        long[] dayShifts = shifts[index(dayOfWeek)];
+        return dayShifts.length > 0 && dayShifts[dayShifts.length - 1] == NANOS_PER_DAY;
+    }
+
+    long getWeekNanos() {
+        long total = 0;
+        for (long nanos : dayNanos) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    // Where a query starting at nanoOfDay effectively starts
+    long effectiveStart(DayOfWeek dayOfWeek, long nanoOfDay) {
+        return nanoOfDay > extensionStarts[index(dayOfWeek)] ? NANOS_PER_DAY : nanoOfDay;
+    }
+
+    // Business time in nanoseconds between two nano-of-day positions on the given day of the week
+    long nanosBetween(DayOfWeek dayOfWeek, long fromNanoOfDay, long toNanoOfDay) {
+        long[] dayShifts = shifts[index(dayOfWeek)];
+        long total = 0;
+        for (int i = 0; i < dayShifts.length; i += 2) {
+            long start = Math.max(dayShifts[i], fromNanoOfDay);
+            long end = Math.min(dayShifts[i + 1], toNanoOfDay);
+            if (end > start) {
+                total += end - start;
+            }
+        }
+        return total;
+    }
+
+    // The earliest nano of day at which nanos of business time have passed since fromNanoOfDay, or -1 when the
+    // day runs out first
+    long nanoOfDayAfter(DayOfWeek dayOfWeek, long fromNanoOfDay, long nanos) {
+        long[] dayShifts = shifts[index(dayOfWeek)];
+        for (int i = 0; i < dayShifts.length; i += 2) {
+            long end = dayShifts[i + 1];
+            if (end < fromNanoOfDay) {
+                continue;
+            }
+            long start = Math.max(dayShifts[i], fromNanoOfDay);
+            if (nanos <= end - start) {
+                return start + nanos;
+            }
+            nanos -= end - start;
+        }
+        return -1;
+    }
+
+    // Year indexes are cached with the timeline. When the holidays have moved on since an index was built it
+    // is only rebuilt if one of the published changes falls inside its year.
+    BusinessYearIndex yearIndex(BusinessHolidayStore holidayStore, BusinessHolidaySnapshot holidays, int year) {
+        BusinessYearIndex index = yearIndexes.get(year);
+        if (index != null && index.getVersion() == holidays.getVersion()) {
+            return index;
+        }
+        if (index != null) {
+            long fromVersion = Math.min(index.getVersion(), holidays.getVersion());
+            long toVersion = Math.max(index.getVersion(), holidays.getVersion());
+            if (!holidayStore.hasChangedBetween(fromVersion, toVersion, LocalDate.ofYearDay(year, 1), LocalDate.of(year, 12, 31))) {
+                if (index.getVersion() < holidays.getVersion()) {
+                    yearIndexes.put(year, index.withVersion(holidays.getVersion()));
+                }
+                return index;
+            }
+        }
+        BusinessYearIndex rebuilt = BusinessYearIndex.build(year, this, holidays);
+        yearIndexes.merge(year, rebuilt, (existing, built) -> existing.getVersion() > built.getVersion() ? existing : built);
+        return rebuilt;
+    }
+}
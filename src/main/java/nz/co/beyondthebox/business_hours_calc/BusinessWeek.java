@@ -13,10 +13,11 @@ public class BusinessWeek {
     }
 
     public BusinessWeek addDay(DayOfWeek dayOfWeek, BusinessDay businessDay) {
-        // TODO: days must be added in order for this to work - modify so they can be added in any order
-        // Here we can handle the logic to split shifts that span multiple days.
+        // Shifts are copied onto the days they cover, so days can be added in any order. Overlapping shifts are
+        // kept as given; BusinessWeekBuilder merges them.
         for (BusinessShift shift : businessDay.getShifts()) {
-            if (shift.getEndTime().isBefore(shift.getStartTime())) {
+            // A shift ending at midnight finishes on its own day, so there is nothing to carry over
+            if (shift.getEndTime().isBefore(shift.getStartTime()) && !shift.getEndTime().equals(LocalTime.MIDNIGHT)) {
                 // This shift spans multiple days
                 // Split the shift into two: one ending at midnight and one starting at midnight.
                 BusinessShift firstShift = new BusinessShift(shift.getStartTime(), LocalTime.MIDNIGHT);
@@ -47,6 +48,11 @@ public class BusinessWeek {
         return businessDays;
     }
 
+    // A copy of this week with each day's shifts sorted, merged and free of overlaps
+    public BusinessWeek normalise() {
+        return new BusinessWeekBuilder().addDays(businessDays).build();
+    }
+
     public BusinessWeek initialiseDefault() {
         addDay(DayOfWeek.MONDAY, new BusinessDay(
                 new BusinessShift(LocalTime.of(8, 0), LocalTime.of(12, 0)),
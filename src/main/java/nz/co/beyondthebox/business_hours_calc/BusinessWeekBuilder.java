@@ -0,0 +1,78 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.*;
+
+import static nz.co.beyondthebox.business_hours_calc.BusinessTimeline.NANOS_PER_DAY;
+
+// Collects shifts in any order and builds a BusinessWeek where every day holds a minimal, sorted set of
+// non-overlapping shifts. Overlapping and touching shifts are merged, shifts that cross midnight are split onto
+// the following day (Sunday runs on into Monday). As in the calculator, a shift ending at midnight runs to the end
+// of its day and any other shift whose end equals its start is empty, so normalising never changes business time.
+public class BusinessWeekBuilder {
+    private final Map<DayOfWeek, List<long[]>> ranges = new EnumMap<>(DayOfWeek.class);
+
+    public BusinessWeekBuilder addShift(DayOfWeek dayOfWeek, LocalTime startTime, LocalTime endTime) {
+        long start = startTime.toNanoOfDay();
+        long end = endTime.equals(LocalTime.MIDNIGHT) ? NANOS_PER_DAY : endTime.toNanoOfDay();
+        if (end < start) {
+            end += NANOS_PER_DAY;
+        }
+        addRange(dayOfWeek, start, Math.min(end, NANOS_PER_DAY));
+        if (end > NANOS_PER_DAY) {
+            addRange(dayOfWeek.plus(1), 0, end - NANOS_PER_DAY);
+        }
+        return this;
+    }
+
+    public BusinessWeekBuilder addShift(DayOfWeek dayOfWeek, BusinessShift shift) {
+        return addShift(dayOfWeek, shift.getStartTime(), shift.getEndTime());
+    }
+
+    public BusinessWeekBuilder addDay(DayOfWeek dayOfWeek, BusinessDay businessDay) {
+        for (BusinessShift shift : businessDay.getShifts()) {
+            addShift(dayOfWeek, shift);
+        }
+        return this;
+    }
+
+    // Days in the map are read as given, without the splitting BusinessWeek.addDay has already applied
+    public BusinessWeekBuilder addDays(Map<DayOfWeek, BusinessDay> businessDays) {
+        businessDays.forEach(this::addDay);
+        return this;
+    }
+
+    public BusinessWeek build() {
+        BusinessWeek businessWeek = new BusinessWeek();
+        for (Map.Entry<DayOfWeek, List<long[]>> entry : ranges.entrySet()) {
+            List<long[]> dayRanges = new ArrayList<>(entry.getValue());
+            dayRanges.sort(Comparator.comparingLong(range -> range[0]));
+            long start = -1;
+            long end = -1;
+            for (long[] range : dayRanges) {
+                if (range[0] <= end) {
+                    end = Math.max(end, range[1]);
+                    continue;
+                }
+                if (start >= 0) {
+                    businessWeek.addShiftToDay(entry.getKey(), shift(start, end));
+                }
+                start = range[0];
+                end = range[1];
+            }
+            businessWeek.addShiftToDay(entry.getKey(), shift(start, end));
+        }
+        return businessWeek;
+    }
+
+    private void addRange(DayOfWeek dayOfWeek, long start, long end) {
+        if (end > start) {
+            ranges.computeIfAbsent(dayOfWeek, day -> new ArrayList<>()).add(new long[]{start, end});
+        }
+    }
+
+    private static BusinessShift shift(long start, long end) {
+        return new BusinessShift(LocalTime.ofNanoOfDay(start), end == NANOS_PER_DAY ? LocalTime.MIDNIGHT : LocalTime.ofNanoOfDay(end));
+    }
+}
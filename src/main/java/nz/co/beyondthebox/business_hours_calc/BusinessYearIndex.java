@@ -0,0 +1,63 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDate;
+
+// Cumulative business nanoseconds for every day of one year, built from a timeline and a holiday snapshot.
+// Instances are immutable; the version records which holiday snapshot they were last validated against.
+final class BusinessYearIndex {
+    private final int year;
+    private final long version;
+    private final long[] cumulativeNanos;
+
+    private BusinessYearIndex(int year, long version, long[] cumulativeNanos) {
+        this.year = year;
+        this.version = version;
+        this.cumulativeNanos = cumulativeNanos;
+    }
+
+    static BusinessYearIndex build(int year, BusinessTimeline timeline, BusinessHolidaySnapshot holidays) {
+        LocalDate date = LocalDate.ofYearDay(year, 1);
+        long[] cumulativeNanos = new long[date.lengthOfYear() + 1];
+        for (int day = 0; day < cumulativeNanos.length - 1; day++, date = date.plusDays(1)) {
+            long nanos = holidays.isHoliday(date) ? 0 : timeline.getDayNanos(date.getDayOfWeek());
+            cumulativeNanos[day + 1] = cumulativeNanos[day] + nanos;
+        }
+        return new BusinessYearIndex(year, holidays.getVersion(), cumulativeNanos);
+    }
+
+    BusinessYearIndex withVersion(long version) {
+        return new BusinessYearIndex(year, version, cumulativeNanos);
+    }
+
+    int getYear() {
+        return year;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    // Business nanoseconds from the start of the year up to the start of the given date
+    long nanosBefore(LocalDate date) {
+        return cumulativeNanos[date.getDayOfYear() - 1];
+    }
+
+    long getYearNanos() {
+        return cumulativeNanos[cumulativeNanos.length - 1];
+    }
+
+    // The first date by the end of which the year has accumulated at least targetNanos of business time
+    LocalDate dateReaching(long targetNanos) {
+        int low = 1;
+        int high = cumulativeNanos.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulativeNanos[middle] >= targetNanos) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return LocalDate.ofYearDay(year, low);
+    }
+}
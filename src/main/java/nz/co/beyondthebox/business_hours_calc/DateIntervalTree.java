@@ -0,0 +1,158 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.function.Consumer;
+
+// Interval tree over inclusive [start, end] date ranges, kept balanced as a treap and augmented with the
+// largest end date in every subtree so overlap queries only descend into branches that can match.
+final class DateIntervalTree<V> {
+    static final class Node<V> {
+        private final long start;
+        private final long end;
+        private final long sequence;
+        private final int priority;
+        private final V value;
+        private long maxEnd;
+        private Node<V> left;
+        private Node<V> right;
+
+        private Node(long start, long end, long sequence, int priority, V value) {
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+            this.priority = priority;
+            this.value = value;
+            this.maxEnd = end;
+        }
+
+        V getValue() {
+            return value;
+        }
+    }
+
+    private final Random random = new Random();
+    private Node<V> root;
+    private long nextSequence;
+    private int size;
+
+    Node<V> insert(LocalDate startDate, LocalDate endDate, V value) {
+        Node<V> node = new Node<>(startDate.toEpochDay(), endDate.toEpochDay(), nextSequence++, random.nextInt(), value);
+        root = insert(root, node);
+        size++;
+        return node;
+    }
+
+    void remove(Node<V> node) {
+        root = remove(root, node);
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Visits every interval that shares at least one date with [fromDate, toDate]
+    void forEachOverlapping(LocalDate fromDate, LocalDate toDate, Consumer<Node<V>> consumer) {
+        forEachOverlapping(root, fromDate.toEpochDay(), toDate.toEpochDay(), consumer);
+    }
+
+    private void forEachOverlapping(Node<V> node, long from, long to, Consumer<Node<V>> consumer) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        forEachOverlapping(node.left, from, to, consumer);
+        if (node.start <= to) {
+            if (node.end >= from) {
+                consumer.accept(node);
+            }
+            forEachOverlapping(node.right, from, to, consumer);
+        }
+    }
+
+    private Node<V> insert(Node<V> node, Node<V> inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        if (compare(inserted, node) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<V> remove(Node<V> node, Node<V> removed) {
+        if (node == null) {
+            throw new IllegalStateException("Interval is not in the tree.");
+        }
+        if (node == removed) {
+            return join(node.left, node.right);
+        }
+        if (compare(removed, node) < 0) {
+            node.left = remove(node.left, removed);
+        } else {
+            node.right = remove(node.right, removed);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<V> join(Node<V> left, Node<V> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = join(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = join(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private Node<V> rotateRight(Node<V> node) {
+        Node<V> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<V> rotateLeft(Node<V> node) {
+        Node<V> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node<V> node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static int compare(Node<?> a, Node<?> b) {
+        int result = Long.compare(a.start, b.start);
+        return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+    }
+}
@@ -0,0 +1,33 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+public class DeadlineChange<K> {
+    private final K key;
+    private final LocalDateTime previousDeadline;
+    private final LocalDateTime deadline;
+
+    public DeadlineChange(K key, LocalDateTime previousDeadline, LocalDateTime deadline) {
+        this.key = key;
+        this.previousDeadline = previousDeadline;
+        this.deadline = deadline;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public LocalDateTime getPreviousDeadline() {
+        return previousDeadline;
+    }
+
+    public LocalDateTime getDeadline() {
+        return deadline;
+    }
+
+    // Wall clock time the deadline moved by, negative when it moved earlier
+    public Duration getShift() {
+        return Duration.between(previousDeadline, deadline);
+    }
+}
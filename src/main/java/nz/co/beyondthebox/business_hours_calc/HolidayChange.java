@@ -0,0 +1,46 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+public class HolidayChange {
+    private final long version;
+    private final NavigableSet<LocalDate> changedDates;
+
+    public HolidayChange(long version, SortedSet<LocalDate> changedDates) {
+        if (changedDates.isEmpty()) {
+            throw new IllegalArgumentException("changedDates must not be empty.");
+        }
+        this.version = version;
+        this.changedDates = Collections.unmodifiableNavigableSet(new TreeSet<>(changedDates));
+    }
+
+    // Version of the holiday store published by this change
+    public long getVersion() {
+        return version;
+    }
+
+    // Dates that were added or removed as holidays
+    public NavigableSet<LocalDate> getChangedDates() {
+        return changedDates;
+    }
+
+    public LocalDate getFromDate() {
+        return changedDates.first();
+    }
+
+    public LocalDate getToDate() {
+        return changedDates.last();
+    }
+
+    public boolean affects(LocalDate fromDate, LocalDate toDate) {
+        return !changedDates.subSet(fromDate, true, toDate, true).isEmpty();
+    }
+
+    public boolean affectsYear(int year) {
+        return affects(LocalDate.ofYearDay(year, 1), LocalDate.of(year, 12, 31));
+    }
+}
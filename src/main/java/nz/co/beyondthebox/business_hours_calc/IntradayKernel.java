@@ -0,0 +1,7 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+// Sums, for each lane, the business time from midnight up to nanoOfDay[i] on the day of the week days[i].
+// Shift bounds are laid out as shiftsPerDay [start, end) pairs per day, Monday first, padded with empty shifts.
+interface IntradayKernel {
+    void businessNanosToTimeOfDay(long[] shiftStarts, long[] shiftEnds, int shiftsPerDay, int[] days, long[] nanoOfDay, long[] result, int length);
+}
@@ -0,0 +1,51 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+
+public class LoadReport {
+    private final long requests;
+    private final long failures;
+    private final Duration elapsed;
+    private final Duration meanLatency;
+    private final Duration maximumLatency;
+
+    public LoadReport(long requests, long failures, Duration elapsed, Duration meanLatency, Duration maximumLatency) {
+        this.requests = requests;
+        this.failures = failures;
+        this.elapsed = elapsed;
+        this.meanLatency = meanLatency;
+        this.maximumLatency = maximumLatency;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    // Requests that did not get a 200 response
+    public long getFailures() {
+        return failures;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public Duration getMeanLatency() {
+        return meanLatency;
+    }
+
+    public Duration getMaximumLatency() {
+        return maximumLatency;
+    }
+
+    // Requests per second
+    public double getThroughput() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : requests * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests, %d failed, %.0f/s, mean %s, max %s", requests, failures, getThroughput(), meanLatency, maximumLatency);
+    }
+}
@@ -0,0 +1,56 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+
+public class RecomputeProgress {
+    private final long submitted;
+    private final long completed;
+    private final long changed;
+    private final long failed;
+    private final Duration elapsed;
+
+    public RecomputeProgress(long submitted, long completed, long changed, long failed, Duration elapsed) {
+        this.submitted = submitted;
+        this.completed = completed;
+        this.changed = changed;
+        this.failed = failed;
+        this.elapsed = elapsed;
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    // Deadlines that have been recomputed or have failed
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getChanged() {
+        return changed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getPending() {
+        return submitted - completed;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    // Completed deadlines per second since the first submission
+    public double getThroughput() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : completed * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d deadlines recomputed, %d changed, %d failed, %.0f per second",
+                completed, submitted, changed, failed, getThroughput());
+    }
+}
@@ -0,0 +1,15 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+final class ScalarIntradayKernel implements IntradayKernel {
+    @Override
+    public void businessNanosToTimeOfDay(long[] shiftStarts, long[] shiftEnds, int shiftsPerDay, int[] days, long[] nanoOfDay, long[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            int base = days[i] * shiftsPerDay;
+            long total = 0;
+            for (int k = 0; k < shiftsPerDay; k++) {
+                total += Math.max(0, Math.min(shiftEnds[base + k], nanoOfDay[i]) - shiftStarts[base + k]);
+            }
+            result[i] = total;
+        }
+    }
+}
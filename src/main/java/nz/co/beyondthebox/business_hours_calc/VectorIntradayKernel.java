@@ -0,0 +1,38 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Works on a full vector of lanes at a time, gathering each lane's shift bounds by its day of the week. Only
+// loaded when the jdk.incubator.vector module has been added, see BusinessBatchCalculator.
+final class VectorIntradayKernel implements IntradayKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void businessNanosToTimeOfDay(long[] shiftStarts, long[] shiftEnds, int shiftsPerDay, int[] days, long[] nanoOfDay, long[] result, int length) {
+        int lanes = SPECIES.length();
+        int[] offsets = new int[lanes];
+        int i = 0;
+        for (; i <= length - lanes; i += lanes) {
+            for (int lane = 0; lane < lanes; lane++) {
+                offsets[lane] = days[i + lane] * shiftsPerDay;
+            }
+            LongVector time = LongVector.fromArray(SPECIES, nanoOfDay, i);
+            LongVector total = LongVector.zero(SPECIES);
+            for (int k = 0; k < shiftsPerDay; k++) {
+                LongVector start = LongVector.fromArray(SPECIES, shiftStarts, k, offsets, 0);
+                LongVector end = LongVector.fromArray(SPECIES, shiftEnds, k, offsets, 0);
+                total = total.add(end.min(time).sub(start).max(0));
+            }
+            total.intoArray(result, i);
+        }
+        for (; i < length; i++) {
+            int base = days[i] * shiftsPerDay;
+            long total = 0;
+            for (int k = 0; k < shiftsPerDay; k++) {
+                total += Math.max(0, Math.min(shiftEnds[base + k], nanoOfDay[i]) - shiftStarts[base + k]);
+            }
+            result[i] = total;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+// A Clock that only moves when told to, for driving a BusinessHoursTransitionPublisher in tests and simulations
+public class VirtualClock extends Clock {
+    private final ZoneId zone;
+    private final List<Runnable> listeners;
+    private final AtomicReference<Instant> instant;
+
+    public VirtualClock(Instant instant, ZoneId zone) {
+        this(new AtomicReference<>(instant), zone, new CopyOnWriteArrayList<>());
+    }
+
+    private VirtualClock(AtomicReference<Instant> instant, ZoneId zone, List<Runnable> listeners) {
+        this.instant = instant;
+        this.zone = zone;
+        this.listeners = listeners;
+    }
+
+    public void advance(Duration duration) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("duration must be a positive number.");
+        }
+        instant.updateAndGet(current -> current.plus(duration));
+        notifyListeners();
+    }
+
+    public void setInstant(Instant instant) {
+        this.instant.set(instant);
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // Listeners run on the thread that moved the clock
+    void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    // Clocks in other zones share the time and the listeners of this one
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new VirtualClock(instant, zone, listeners);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant.get();
+    }
+}
@@ -0,0 +1,60 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class WhatIfSummary {
+    private final long tickets;
+    private final long evaluated;
+    private final long earlier;
+    private final long later;
+    private final long[] shiftCounts;
+
+    public WhatIfSummary(long tickets, long evaluated, long earlier, long later, long[] shiftCounts) {
+        this.tickets = tickets;
+        this.evaluated = evaluated;
+        this.earlier = earlier;
+        this.later = later;
+        this.shiftCounts = shiftCounts.clone();
+    }
+
+    public long getTickets() {
+        return tickets;
+    }
+
+    // Tickets whose window touched a difference between the calendars and so were evaluated again
+    public long getEvaluated() {
+        return evaluated;
+    }
+
+    public long getMoved() {
+        return earlier + later;
+    }
+
+    public long getMovedEarlier() {
+        return earlier;
+    }
+
+    public long getMovedLater() {
+        return later;
+    }
+
+    // Moved deadlines by the size of their shift either way, keyed by the exclusive upper bound of each bucket.
+    // The last bucket has no upper bound and is keyed by ChronoUnit.FOREVER's duration.
+    public Map<Duration, Long> getShiftDistribution() {
+        Map<Duration, Long> distribution = new LinkedHashMap<>();
+        for (int i = 0; i < shiftCounts.length; i++) {
+            Duration bound = i < BusinessCalendarWhatIf.SHIFT_BUCKETS.length ? BusinessCalendarWhatIf.SHIFT_BUCKETS[i] : ChronoUnit.FOREVER.getDuration();
+            distribution.put(bound, shiftCounts[i]);
+        }
+        return Collections.unmodifiableMap(distribution);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d tickets, %d evaluated, %d moved (%d earlier, %d later)", tickets, evaluated, getMoved(), earlier, later);
+    }
+}
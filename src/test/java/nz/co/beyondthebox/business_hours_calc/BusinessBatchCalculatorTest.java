@@ -0,0 +1,116 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BusinessBatchCalculatorTest {
+
+    private static BusinessHoursCalculator calculator() {
+        Map<DayOfWeek, BusinessDay> businessDays = BusinessWeekTemplate.DEFAULT();
+        businessDays.put(DayOfWeek.WEDNESDAY, new BusinessDay(
+                new BusinessShift(LocalTime.of(7, 30), LocalTime.of(11, 0)),
+                new BusinessShift(LocalTime.of(12, 0), LocalTime.of(15, 0)),
+                new BusinessShift(LocalTime.of(16, 0, 0, 250_000), LocalTime.of(19, 0))));
+        businessDays.put(DayOfWeek.SATURDAY, new BusinessDay(new BusinessShift(LocalTime.of(22, 0), LocalTime.MIDNIGHT)));
+        TreeSet<LocalDate> holidays = BusinessHolidays.DEFAULT();
+        holidays.add(LocalDate.of(1969, 12, 25));
+        holidays.add(LocalDate.of(2023, 12, 25));
+        holidays.add(LocalDate.of(2023, 12, 26));
+        return new BusinessHoursCalculator(businessDays, holidays);
+    }
+
+    private static long toNanos(LocalDateTime dateTime) {
+        return dateTime.toLocalDate().toEpochDay() * BusinessTimeline.NANOS_PER_DAY + dateTime.toLocalTime().toNanoOfDay();
+    }
+
+    @Test
+    public void testMatchesCalculator() {
+        BusinessHoursCalculator calculator = calculator();
+        Random random = new Random(42);
+        // Not a multiple of any vector length, so the tail of each block is covered too
+        int count = 2_500 + 3;
+        long[] startTimes = new long[count];
+        long[] endTimes = new long[count];
+        long[] expected = new long[count];
+        for (int i = 0; i < count; i++) {
+            LocalDateTime start = LocalDateTime.of(1965, 1, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 365 * 70)).plusNanos(random.nextInt(1_000_000));
+            LocalDateTime end = start.plusMinutes(random.nextInt(60 * 24 * 60));
+            startTimes[i] = toNanos(start);
+            endTimes[i] = toNanos(end);
+            expected[i] = calculator.calculateWorkingDurationBetween(start, end).toNanos();
+        }
+
+        BusinessBatchCalculator batch = new BusinessBatchCalculator(calculator);
+        assertArrayEquals(expected, batch.calculateWorkingNanosBetween(startTimes, endTimes), "vectorised " + batch.isVectorised());
+        assertArrayEquals(expected, new BusinessBatchCalculator(calculator, new ScalarIntradayKernel()).calculateWorkingNanosBetween(startTimes, endTimes));
+    }
+
+    @Test
+    public void testHolidays() {
+        BusinessHoursCalculator calculator = calculator();
+        BusinessBatchCalculator batch = new BusinessBatchCalculator(calculator);
+        LocalDateTime christmas = LocalDateTime.of(2023, 12, 25, 10, 0);
+        long[] result = batch.calculateWorkingNanosBetween(
+                new long[]{toNanos(christmas), toNanos(christmas.minusDays(4))},
+                new long[]{toNanos(christmas.plusHours(3)), toNanos(christmas.plusDays(2))});
+        assertEquals(0, result[0]);
+        assertEquals(calculator.calculateWorkingDurationBetween(christmas.minusDays(4), christmas.plusDays(2)).toNanos(), result[1]);
+
+        calculator.getHolidayStore().add(LocalDate.of(2023, 12, 21));
+        assertEquals(calculator.calculateWorkingDurationBetween(christmas.minusDays(4), christmas.plusDays(2)).toNanos(),
+                batch.calculateWorkingNanosBetween(new long[]{toNanos(christmas.minusDays(4))}, new long[]{toNanos(christmas.plusDays(2))})[0]);
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        BusinessBatchCalculator batch = new BusinessBatchCalculator(calculator());
+        assertThrows(IllegalArgumentException.class, () -> batch.calculateWorkingNanosBetween(new long[2], new long[1]));
+        assertThrows(IllegalArgumentException.class, () -> batch.calculateWorkingNanosBetween(new long[]{0, 10}, new long[]{5, 5}));
+        assertEquals(0, batch.calculateWorkingNanosBetween(new long[0], new long[0]).length);
+    }
+
+    @Test
+    public void testMatrix() {
+        Map<DayOfWeek, BusinessDay> overlapping = BusinessWeekTemplate.DEFAULT();
+        overlapping.put(DayOfWeek.TUESDAY, new BusinessDay(
+                new BusinessShift(LocalTime.of(9, 0), LocalTime.of(13, 0)),
+                new BusinessShift(LocalTime.of(12, 0), LocalTime.of(17, 0))));
+        Random random = new Random(46);
+        List<LocalDateTime> starts = new ArrayList<>();
+        List<LocalDateTime> ends = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            starts.add(LocalDateTime.of(2023, 10, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 90)));
+        }
+        for (int i = 0; i < 25; i++) {
+            ends.add(LocalDateTime.of(2023, 11, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 120)));
+        }
+
+        for (BusinessHoursCalculator calculator : List.of(calculator(), new BusinessHoursCalculator(overlapping, BusinessHolidays.DEFAULT()))) {
+            BusinessBatchCalculator batch = new BusinessBatchCalculator(calculator);
+            long[] matrix = batch.calculateWorkingNanosMatrix(starts, ends);
+            assertEquals(starts.size() * ends.size(), matrix.length);
+            for (int i = 0; i < starts.size(); i++) {
+                for (int j = 0; j < ends.size(); j++) {
+                    long expected = starts.get(i).isAfter(ends.get(j))
+                            ? -calculator.calculateWorkingDurationBetween(ends.get(j), starts.get(i)).toNanos()
+                            : calculator.calculateWorkingDurationBetween(starts.get(i), ends.get(j)).toNanos();
+                    assertEquals(expected, matrix[i * ends.size() + j], starts.get(i) + " to " + ends.get(j));
+                }
+            }
+
+            List<Integer> rows = new ArrayList<>();
+            batch.forEachMatrixRow(starts, ends, (row, index) -> {
+                assertArrayEquals(Arrays.copyOfRange(matrix, index * ends.size(), (index + 1) * ends.size()), row);
+                rows.add(index);
+            });
+            assertEquals(starts.size(), rows.size());
+        }
+        assertEquals(0, new BusinessBatchCalculator(calculator()).calculateWorkingNanosMatrix(starts, List.of()).length);
+    }
+}
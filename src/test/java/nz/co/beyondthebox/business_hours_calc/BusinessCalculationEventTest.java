@@ -0,0 +1,85 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BusinessCalculationEventTest {
+    private static final String EVENT_NAME = "nz.co.beyondthebox.business_hours_calc.BusinessCalculation";
+
+    @Test
+    public void testLongCalculationsAreRecorded() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), new TreeSet<>())
+                .setCalendarName("head office")
+                .setSlowCalculationThreshold(Duration.ofDays(1))
+                .setDaysScannedThreshold(30);
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);
+
+        List<RecordedEvent> events = record(() -> {
+            calculator.addBusinessHours(start, Duration.ofHours(8));
+            calculator.addBusinessHours(start, Duration.ofHours(400));
+            calculator.calculateWorkingDurationBetween(start, start.plusDays(2));
+            calculator.calculateWorkingDurationBetween(start, start.plusDays(60));
+        });
+
+        assertEquals(2, events.size());
+        RecordedEvent add = events.get(0);
+        assertEquals("head office", add.getString("calendar"));
+        assertEquals("addBusinessHours", add.getString("operation"));
+        assertEquals("EPOCH_INDEX", add.getString("strategy"));
+        assertEquals(start.toString(), add.getString("startDateTime"));
+        assertEquals("PT400H", add.getString("businessDuration"));
+        assertEquals(false, add.getBoolean("aborted"));
+        assertEquals(LocalDateTime.parse(add.getString("endDateTime")).toLocalDate().toEpochDay() - start.toLocalDate().toEpochDay() + 1,
+                add.getLong("daysScanned"));
+        assertEquals("calculateWorkingDurationBetween", events.get(1).getString("operation"));
+        assertEquals(61, events.get(1).getLong("daysScanned"));
+    }
+
+    @Test
+    public void testAbortedCalculationsAreRecorded() throws Exception {
+        TreeSet<LocalDate> holidays = new TreeSet<>();
+        for (LocalDate date = LocalDate.of(2023, 9, 1); date.isBefore(LocalDate.of(2023, 12, 1)); date = date.plusDays(1)) {
+            holidays.add(date);
+        }
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), holidays)
+                .setMaximumDaysScanned(50);
+
+        List<RecordedEvent> events = record(() -> assertThrows(IllegalStateException.class,
+                () -> calculator.addBusinessHours(LocalDateTime.of(2023, 9, 4, 8, 0), Duration.ofHours(1))));
+
+        assertEquals(1, events.size());
+        assertEquals(true, events.get(0).getBoolean("aborted"));
+        assertEquals(50, events.get(0).getLong("daysScanned"));
+        assertEquals(calculator.getCalendarName(), events.get(0).getString("calendar"));
+    }
+
+    private static List<RecordedEvent> record(Runnable calculations) throws Exception {
+        Path file = Files.createTempFile("business-hours", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_NAME);
+            recording.start();
+            calculations.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(EVENT_NAME))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
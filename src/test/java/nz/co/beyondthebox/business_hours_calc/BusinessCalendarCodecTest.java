@@ -0,0 +1,98 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessCalendarCodecTest {
+
+    @Test
+    public void testRoundTrip() {
+        Map<DayOfWeek, BusinessDay> businessDays = BusinessWeekTemplate.DEFAULT();
+        // Kept exactly as given, including an unsplit overnight shift and sub-second times
+        businessDays.put(DayOfWeek.SATURDAY, new BusinessDay(
+                new BusinessShift(LocalTime.of(22, 0), LocalTime.of(2, 0)),
+                new BusinessShift(LocalTime.of(9, 0, 0, 500_000), LocalTime.of(9, 30))));
+        TreeSet<LocalDate> holidays = new TreeSet<>(Arrays.asList(LocalDate.of(1969, 12, 25), LocalDate.of(2023, 10, 23), LocalDate.of(2023, 12, 25)));
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(businessDays, holidays).setCalendarName("wellington");
+
+        byte[] bytes = calculator.toBytes();
+        assertTrue(bytes.length < 128, "encoded in " + bytes.length + " bytes");
+        BusinessHoursCalculator decoded = BusinessHoursCalculator.fromBytes(bytes);
+
+        assertEquals("wellington", decoded.getCalendarName());
+        assertEquals(holidays, decoded.getHolidayStore().getSnapshot().getHolidays());
+        assertEquals(businessDays.keySet(), decoded.getBusinessDays().keySet());
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime start = LocalDateTime.of(2023, 9, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 120));
+            Duration duration = Duration.ofMinutes(random.nextInt(60 * 80));
+            Duration minimum = random.nextBoolean() ? null : Duration.ofHours(7);
+            assertEquals(calculator.addBusinessHours(start, duration, minimum), decoded.addBusinessHours(start, duration, minimum));
+            assertEquals(calculator.calculateWorkingDurationBetween(start, start.plus(duration), minimum),
+                    decoded.calculateWorkingDurationBetween(start, start.plus(duration), minimum));
+        }
+    }
+
+    @Test
+    public void testJavaSerializationSharesDecodedCalendars() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+
+        BusinessHoursCalculator first = (BusinessHoursCalculator) deserialize(serialize(calculator));
+        BusinessHoursCalculator second = (BusinessHoursCalculator) deserialize(serialize(calculator));
+        assertTrue(first != second);
+        assertTrue(first.getEpochIndex() == second.getEpochIndex());
+        assertEquals(calculator.addBusinessHours(LocalDateTime.of(2023, 10, 20, 15, 0), Duration.ofHours(4)),
+                first.addBusinessHours(LocalDateTime.of(2023, 10, 20, 15, 0), Duration.ofHours(4)));
+
+        calculator.getHolidayStore().add(LocalDate.of(2023, 10, 24));
+        BusinessHoursCalculator changed = (BusinessHoursCalculator) deserialize(serialize(calculator));
+        assertTrue(changed != first);
+        assertTrue(changed.getHolidayStore().isHoliday(LocalDate.of(2023, 10, 24)));
+    }
+
+    @Test
+    public void testDecodedCalendarsDoNotShareChanges() {
+        byte[] bytes = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT()).toBytes();
+        LocalDateTime friday = LocalDateTime.of(2023, 10, 20, 15, 0);
+
+        BusinessHoursCalculator changed = BusinessHoursCalculator.fromBytes(bytes);
+        changed.getHolidayStore().add(LocalDate.of(2023, 10, 24));
+        changed.setMaximumDaysScanned(100).setCalendarName("changed");
+        assertEquals(LocalDateTime.of(2023, 10, 25, 9, 0), changed.addBusinessHours(friday, Duration.ofHours(3)));
+
+        BusinessHoursCalculator fresh = BusinessHoursCalculator.fromBytes(bytes);
+        assertTrue(fresh != changed);
+        assertTrue(!fresh.getHolidayStore().isHoliday(LocalDate.of(2023, 10, 24)));
+        assertEquals(366_000L, fresh.getMaximumDaysScanned());
+        assertEquals(LocalDateTime.of(2023, 10, 24, 9, 0), fresh.addBusinessHours(friday, Duration.ofHours(3)));
+    }
+
+    @Test
+    public void testRejectsUnknownVersions() {
+        byte[] bytes = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault()).toBytes();
+        bytes[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> BusinessHoursCalculator.fromBytes(bytes));
+        assertThrows(IllegalArgumentException.class, () -> BusinessHoursCalculator.fromBytes(new byte[]{BusinessCalendarCodec.FORMAT_VERSION}));
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
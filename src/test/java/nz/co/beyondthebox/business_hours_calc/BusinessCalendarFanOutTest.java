@@ -0,0 +1,78 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessCalendarFanOutTest {
+
+    // Teams working from one to five days a week, some of them part time
+    private static BusinessHoursCalculator team(Random random) {
+        Map<DayOfWeek, BusinessDay> businessDays = new HashMap<>();
+        int days = 1 + random.nextInt(5);
+        int hours = 2 + random.nextInt(7);
+        for (int day = 0; day < days; day++) {
+            businessDays.put(DayOfWeek.of(1 + random.nextInt(7)), new BusinessDay(new BusinessShift(LocalTime.of(8, 0), LocalTime.of(8 + hours, 0))));
+        }
+        TreeSet<LocalDate> holidays = new TreeSet<>();
+        for (int i = 0; i < 5; i++) {
+            holidays.add(LocalDate.of(2023, 10, 1).plusDays(random.nextInt(120)));
+        }
+        return new BusinessHoursCalculator(businessDays, holidays);
+    }
+
+    @Test
+    public void testRankingMatchesEvaluatingEveryCalendar() {
+        Random random = new Random(47);
+        BusinessCalendarFanOut<String> fanOut = new BusinessCalendarFanOut<String>().setWaveSize(4);
+        Map<String, BusinessHoursCalculator> teams = new HashMap<>();
+        for (int i = 0; i < 120; i++) {
+            teams.put("team " + i, team(random));
+            fanOut.addCalendar("team " + i, teams.get("team " + i));
+        }
+        fanOut.addCalendar("closed", new BusinessHoursCalculator(new BusinessWeek()));
+        assertEquals(121, fanOut.size());
+
+        for (int query = 0; query < 20; query++) {
+            LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 60));
+            Duration effort = Duration.ofHours(1 + random.nextInt(120));
+            List<LocalDateTime> expected = teams.values().stream()
+                    .map(calculator -> calculator.addBusinessHours(start, effort))
+                    .sorted()
+                    .collect(Collectors.toList());
+
+            List<BusinessHoursCompletion<String>> all = fanOut.rank(start, effort);
+            assertEquals(expected, all.stream().map(BusinessHoursCompletion::getDateTime).collect(Collectors.toList()));
+            for (BusinessHoursCompletion<String> completion : all) {
+                assertEquals(teams.get(completion.getCalendar()).addBusinessHours(start, effort), completion.getDateTime());
+            }
+            assertEquals(expected.subList(0, 5), fanOut.rank(start, effort, 5).stream().map(BusinessHoursCompletion::getDateTime).collect(Collectors.toList()));
+            assertEquals(expected.get(0), fanOut.earliest(start, effort).getDateTime());
+        }
+        assertTrue(fanOut.getPrunedCount() > 0);
+    }
+
+    @Test
+    public void testEdgeCases() {
+        BusinessCalendarFanOut<Integer> fanOut = new BusinessCalendarFanOut<>();
+        LocalDateTime start = LocalDateTime.of(2023, 10, 20, 15, 0);
+        assertNull(fanOut.earliest(start, Duration.ofHours(4)));
+
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+        fanOut.addCalendar(1, calculator).addCalendar(2, new BusinessHoursCalculator(new BusinessWeek()));
+        assertEquals(calculator.addBusinessHours(start, Duration.ZERO), fanOut.earliest(start, Duration.ZERO).getDateTime());
+        assertEquals("1 finishes at " + calculator.addBusinessHours(start, Duration.ofHours(4)), fanOut.earliest(start, Duration.ofHours(4)).toString());
+        assertEquals(1, fanOut.removeCalendar(2).size());
+
+        assertThrows(IllegalArgumentException.class, () -> fanOut.rank(start, Duration.ofHours(-1)));
+        assertThrows(IllegalArgumentException.class, () -> fanOut.rank(start, Duration.ofHours(1), 0));
+        assertThrows(IllegalArgumentException.class, () -> fanOut.setWaveSize(0));
+    }
+}
@@ -0,0 +1,84 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BusinessCalendarSlabTest {
+
+    private static BusinessWeek tenantWeek(int tenantId) {
+        BusinessWeek businessWeek = new BusinessWeek();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((tenantId + day.getValue()) % 3 != 0) {
+                int start = 6 + (tenantId + day.getValue()) % 5;
+                businessWeek.addDay(day, new BusinessDay(
+                        new BusinessShift(LocalTime.of(start, 0), LocalTime.of(start + 4, 30)),
+                        new BusinessShift(LocalTime.of(start + 5, 0), LocalTime.of(start + 9, 0))));
+            }
+        }
+        if (tenantId % 4 == 0) {
+            businessWeek.addShiftToDay(DayOfWeek.FRIDAY, new BusinessShift(LocalTime.of(22, 0), LocalTime.MIDNIGHT));
+            businessWeek.addShiftToDay(DayOfWeek.SATURDAY, new BusinessShift(LocalTime.MIDNIGHT, LocalTime.of(3, 0)));
+        }
+        return businessWeek;
+    }
+
+    private static Set<LocalDate> tenantHolidays(int tenantId) {
+        Set<LocalDate> holidays = new TreeSet<>();
+        for (int i = 0; i < 12; i++) {
+            holidays.add(LocalDate.of(2023, 9, 1).plusDays((tenantId * 7L + i * 11L) % 150));
+        }
+        return holidays;
+    }
+
+    @Test
+    public void testViewsMatchCalculators() {
+        BusinessCalendarSlab slab = new BusinessCalendarSlab(4096);
+        for (int tenantId = 0; tenantId < 200; tenantId++) {
+            slab.put(tenantId, tenantWeek(tenantId), tenantHolidays(tenantId));
+        }
+
+        Random random = new Random(3);
+        for (int i = 0; i < 3000; i++) {
+            int tenantId = random.nextInt(200);
+            BusinessCalendarView view = slab.get(tenantId);
+            BusinessHoursCalculator calculator = new BusinessHoursCalculator(tenantWeek(tenantId), tenantHolidays(tenantId));
+            LocalDateTime start = LocalDateTime.of(2023, 8, 20, 0, 0).plusMinutes(random.nextInt(60 * 24 * 160));
+            Duration duration = Duration.ofMinutes(random.nextInt(8) == 0 ? 0 : random.nextInt(60 * 400));
+            LocalDateTime end = start.plusMinutes(random.nextInt(60 * 24 * 90));
+
+            assertEquals(calculator.addBusinessHours(start, duration), view.addBusinessHours(start, duration), tenantId + " " + start + " " + duration);
+            assertEquals(calculator.calculateWorkingDurationBetween(start, end), view.calculateWorkingDurationBetween(start, end));
+            assertEquals(tenantHolidays(tenantId).contains(start.toLocalDate()), view.isHoliday(start.toLocalDate()));
+        }
+        assertTrue(slab.getAllocatedBytes() > 4096);
+    }
+
+    @Test
+    public void testReplaceAndMissingTenants() {
+        BusinessCalendarSlab slab = new BusinessCalendarSlab();
+        slab.put(5, new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+        assertNull(slab.get(4));
+        assertNull(slab.get(5000));
+        assertFalse(slab.contains(-1));
+
+        LocalDateTime start = LocalDateTime.of(2023, 10, 20, 16, 0);  // Friday before the holiday
+        assertEquals(LocalDateTime.of(2023, 10, 24, 9, 0), slab.get(5).addBusinessHours(start, Duration.ofHours(2)));
+        assertTrue(slab.get(5).isOpen(start));
+        assertFalse(slab.get(5).isOpen(start.plusHours(1)));
+
+        slab.put(5, new BusinessWeek().initialiseDefault(), Set.of());
+        assertEquals(LocalDateTime.of(2023, 10, 23, 9, 0), slab.get(5).addBusinessHours(start, Duration.ofHours(2)));
+        assertEquals(Duration.ofHours(40), slab.get(5).getWeekDuration());
+    }
+
+    @Test
+    public void testCalendarWithoutBusinessHoursFailsFast() {
+        BusinessCalendarSlab slab = new BusinessCalendarSlab();
+        BusinessCalendarView view = slab.put(0, new BusinessWeek(), Set.of());
+        assertThrows(IllegalStateException.class, () -> view.addBusinessHours(LocalDateTime.of(2023, 9, 4, 8, 0), Duration.ofHours(1)));
+    }
+}
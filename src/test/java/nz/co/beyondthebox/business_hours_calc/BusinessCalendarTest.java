@@ -0,0 +1,61 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BusinessCalendarTest {
+
+    private BusinessCalendar calendar;
+
+    @BeforeEach
+    public void setUp() {
+        // From Wednesday 2023-09-06 the office only opens 10:00 - 14:00 on weekdays
+        BusinessWeek shortWeek = new BusinessWeek();
+        for (DayOfWeek day : new DayOfWeek[]{DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY}) {
+            shortWeek.addDay(day, new BusinessDay(new BusinessShift(LocalTime.of(10, 0), LocalTime.of(14, 0))));
+        }
+        calendar = new BusinessCalendar(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT())
+                .addWeek(LocalDate.of(2023, 9, 6), shortWeek);
+    }
+
+    @Test
+    public void testCalculateWorkingDurationAcrossSegments() {
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);  // It's a Monday
+        LocalDateTime end = LocalDateTime.of(2023, 9, 8, 17, 0);
+        // 8 hours on Monday and Tuesday, then 4 hours a day
+        assertEquals(Duration.ofHours(28), calendar.calculateWorkingDurationBetween(start, end));
+        assertEquals(Duration.ofHours(2), calendar.calculateWorkingDurationBetween(
+                LocalDateTime.of(2023, 9, 6, 12, 0), LocalDateTime.of(2023, 9, 7, 0, 0)));
+    }
+
+    @Test
+    public void testAddBusinessHoursAcrossSegments() {
+        assertEquals(LocalDateTime.of(2023, 9, 6, 14, 0),
+                calendar.addBusinessHours(LocalDateTime.of(2023, 9, 4, 8, 0), Duration.ofHours(20)));
+        assertEquals(LocalDateTime.of(2023, 9, 6, 13, 0),
+                calendar.addBusinessHours(LocalDateTime.of(2023, 9, 5, 9, 0), Duration.ofHours(10)));
+        assertEquals(LocalDateTime.of(2023, 9, 6, 10, 0),
+                calendar.addBusinessHours(LocalDateTime.of(2023, 9, 5, 18, 0), Duration.ZERO));
+        // Monday 2023-10-23 is a holiday in every segment
+        assertEquals(LocalDateTime.of(2023, 10, 24, 11, 0),
+                calendar.addBusinessHours(LocalDateTime.of(2023, 10, 20, 13, 0), Duration.ofHours(2)));
+    }
+
+    @Test
+    public void testAddAndBetweenAgree() {
+        calendar.addWeek(LocalDate.of(2023, 11, 1), new BusinessWeek().initialiseDefault());
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            LocalDateTime start = LocalDateTime.of(2023, 8, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 120));
+            Duration duration = Duration.ofMinutes(1 + random.nextInt(60 * 200));
+            LocalDateTime end = calendar.addBusinessHours(start, duration);
+            assertEquals(duration, calendar.calculateWorkingDurationBetween(start, end), start + " " + duration);
+        }
+        assertEquals(Set.of(LocalDate.MIN, LocalDate.of(2023, 9, 6), LocalDate.of(2023, 11, 1)), calendar.getEffectiveDates());
+    }
+}
@@ -0,0 +1,76 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessCalendarWhatIfTest {
+
+    @Test
+    public void testMatchesReevaluatingEveryTicket() {
+        TreeSet<LocalDate> holidays = BusinessHolidays.DEFAULT();
+        holidays.add(LocalDate.of(2023, 12, 25));
+        BusinessHoursCalculator current = new BusinessHoursCalculator(BusinessWeekTemplate.DEFAULT(), holidays);
+
+        // Saturday mornings, one new holiday and one dropped
+        Map<DayOfWeek, BusinessDay> proposedDays = BusinessWeekTemplate.DEFAULT();
+        proposedDays.put(DayOfWeek.SATURDAY, new BusinessDay(new BusinessShift(LocalTime.of(9, 0), LocalTime.of(12, 0))));
+        TreeSet<LocalDate> proposedHolidays = new TreeSet<>(holidays);
+        proposedHolidays.add(LocalDate.of(2023, 11, 14));
+        proposedHolidays.remove(LocalDate.of(2023, 10, 23));
+        BusinessHoursCalculator proposed = new BusinessHoursCalculator(proposedDays, proposedHolidays);
+
+        Map<Integer, DeadlineChange<Integer>> changes = new HashMap<>();
+        BusinessCalendarWhatIf<Integer> whatIf = new BusinessCalendarWhatIf<>(current, proposed, change -> changes.put(change.getKey(), change));
+        Random random = new Random(48);
+        Map<Integer, LocalDateTime> expected = new HashMap<>();
+        for (int ticket = 0; ticket < 2_000; ticket++) {
+            // Mostly short tickets that start on weekdays, so many never reach a Saturday
+            LocalDateTime start = LocalDateTime.of(2023, 10, 2, 8, 0).plusDays(random.nextInt(70)).plusMinutes(random.nextInt(600));
+            Duration duration = Duration.ofMinutes(random.nextInt(60 * 10));
+            LocalDateTime before = current.addBusinessHours(start, duration);
+            LocalDateTime after = proposed.addBusinessHours(start, duration);
+            if (!before.equals(after)) {
+                expected.put(ticket, after);
+            }
+            if (ticket % 2 == 0) {
+                whatIf.evaluate(ticket, start, duration);
+            } else {
+                whatIf.evaluate(ticket, start, duration, before);
+            }
+        }
+
+        assertEquals(expected.keySet(), changes.keySet());
+        expected.forEach((ticket, deadline) -> assertEquals(deadline, changes.get(ticket).getDeadline()));
+        WhatIfSummary summary = whatIf.getSummary();
+        assertEquals(2_000, summary.getTickets());
+        assertEquals(expected.size(), summary.getMoved());
+        assertTrue(summary.getEvaluated() < summary.getTickets(), summary.toString());
+        assertTrue(summary.getMovedEarlier() > 0 && summary.getMovedLater() > 0, summary.toString());
+        assertEquals(summary.getMoved(), summary.getShiftDistribution().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(8, summary.getShiftDistribution().size());
+    }
+
+    @Test
+    public void testDifferences() {
+        BusinessHoursCalculator current = new BusinessHoursCalculator(BusinessWeekTemplate.DEFAULT(), BusinessHolidays.DEFAULT());
+        BusinessHoursCalculator same = new BusinessHoursCalculator(BusinessWeekTemplate.DEFAULT(), BusinessHolidays.DEFAULT());
+        BusinessCalendarWhatIf<String> unchanged = new BusinessCalendarWhatIf<>(current, same, change -> { });
+        assertFalse(unchanged.differsBetween(LocalDate.of(2000, 1, 1), LocalDate.of(2100, 1, 1)));
+
+        Map<DayOfWeek, BusinessDay> longerTuesdays = BusinessWeekTemplate.DEFAULT();
+        longerTuesdays.put(DayOfWeek.TUESDAY, new BusinessDay(new BusinessShift(LocalTime.of(8, 0), LocalTime.of(18, 0))));
+        BusinessCalendarWhatIf<String> tuesdays = new BusinessCalendarWhatIf<>(current, new BusinessHoursCalculator(longerTuesdays, BusinessHolidays.DEFAULT()), change -> { });
+        assertFalse(tuesdays.differsBetween(LocalDate.of(2023, 10, 18), LocalDate.of(2023, 10, 23)));
+        assertTrue(tuesdays.differsBetween(LocalDate.of(2023, 10, 18), LocalDate.of(2023, 10, 24)));
+        tuesdays.evaluate("thursday", LocalDateTime.of(2023, 10, 19, 10, 0), Duration.ofHours(2));
+        tuesdays.evaluate("tuesday", LocalDateTime.of(2023, 10, 24, 16, 0), Duration.ofHours(4));
+        assertEquals("2 tickets, 1 evaluated, 1 moved (1 earlier, 0 later)", tuesdays.getSummary().toString());
+        assertEquals(Long.valueOf(1), tuesdays.getSummary().getShiftDistribution().get(Duration.ofHours(4)));
+    }
+}
@@ -0,0 +1,167 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessDeadlineRecomputerTest {
+
+    @Test
+    public void testRecomputesAcrossCalendars() throws Exception {
+        List<BusinessHoursCalculator> calculators = Arrays.asList(
+                new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT()),
+                new BusinessHoursCalculator(BusinessWeekTemplate.DEFAULT(), new TreeSet<>()),
+                new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), new TreeSet<>(Arrays.asList(LocalDate.of(2023, 9, 5)))));
+        Map<Integer, LocalDateTime> expected = new HashMap<>();
+        Map<Integer, LocalDateTime> actual = new ConcurrentHashMap<>();
+        List<RecomputeProgress> progress = new CopyOnWriteArrayList<>();
+
+        try (BusinessDeadlineRecomputer<Integer> recomputer = new BusinessDeadlineRecomputer<Integer>(4, 50, 200,
+                change -> actual.put(change.getKey(), change.getDeadline()))
+                .setProgressListener(progress::add)) {
+            Random random = new Random(7);
+            for (int ticket = 0; ticket < 5000; ticket++) {
+                BusinessHoursCalculator calculator = calculators.get(random.nextInt(calculators.size()));
+                LocalDateTime start = LocalDateTime.of(2023, 9, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 90));
+                Duration duration = Duration.ofMinutes(random.nextInt(60 * 100));
+                LocalDateTime deadline = calculator.addBusinessHours(start, duration);
+                expected.put(ticket, deadline);
+                // Every other ticket already has the right deadline and should not reach the sink
+                recomputer.submit(calculator, ticket, start, duration, ticket % 2 == 0 ? deadline : null);
+            }
+            assertTrue(recomputer.awaitCompletion(30, TimeUnit.SECONDS));
+
+            RecomputeProgress finished = recomputer.getProgress();
+            assertEquals(5000, finished.getSubmitted());
+            assertEquals(5000, finished.getCompleted());
+            assertEquals(2500, finished.getChanged());
+            assertEquals(0, finished.getFailed());
+            assertEquals(0, finished.getPending());
+            assertTrue(finished.getThroughput() > 0);
+        }
+
+        assertEquals(2500, actual.size());
+        actual.forEach((ticket, deadline) -> assertEquals(expected.get(ticket), deadline));
+        assertTrue(!progress.isEmpty());
+    }
+
+    @Test
+    public void testSlowSinkHoldsBackSubmitters() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), new TreeSet<>());
+        AtomicInteger received = new AtomicInteger();
+        int maximumPending = 8;
+
+        try (BusinessDeadlineRecomputer<Integer> recomputer = new BusinessDeadlineRecomputer<>(2, 3, maximumPending, change -> {
+            received.incrementAndGet();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        })) {
+            for (int ticket = 0; ticket < 200; ticket++) {
+                recomputer.submit(calculator, ticket, LocalDateTime.of(2023, 9, 4, 8, 0), Duration.ofHours(ticket), null);
+                assertTrue(recomputer.getProgress().getPending() <= maximumPending);
+            }
+        }
+        assertEquals(200, received.get());
+    }
+
+    @Test
+    public void testBlockedSubmittersFlushBatchesOpenedAfterThem() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), new TreeSet<>());
+        LocalDateTime monday = LocalDateTime.of(2023, 9, 4, 9, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        try (BusinessDeadlineRecomputer<Integer> recomputer = new BusinessDeadlineRecomputer<Integer>(2, 2, 1, change -> {
+            if (change.getKey() == 0) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        })) {
+            recomputer.submit(calculator, 0, monday, Duration.ofHours(1), null);
+            // Both flush the first ticket and wait; whichever gets its permit next leaves a half full batch behind
+            List<Thread> submitters = new ArrayList<>();
+            for (int key = 1; key <= 2; key++) {
+                int ticket = key;
+                Thread submitter = new Thread(() -> {
+                    try {
+                        recomputer.submit(calculator, ticket, monday, Duration.ofHours(ticket), null);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                submitter.setDaemon(true);
+                submitter.start();
+                submitters.add(submitter);
+            }
+            Thread.sleep(100);
+            release.countDown();
+            boolean stuck = false;
+            for (Thread submitter : submitters) {
+                submitter.join(10_000);
+                stuck |= submitter.isAlive();
+                submitter.interrupt();
+            }
+            assertTrue(!stuck, "a submitter is still waiting for a permit");
+            assertTrue(recomputer.awaitCompletion(10, TimeUnit.SECONDS));
+            assertEquals(3, recomputer.getProgress().getCompleted());
+        }
+    }
+
+    @Test
+    public void testFailuresAreCounted() throws Exception {
+        BusinessHoursCalculator closed = new BusinessHoursCalculator(new BusinessWeek(), new TreeSet<>());
+        List<Integer> failedKeys = new CopyOnWriteArrayList<>();
+
+        BusinessDeadlineRecomputer<Integer> recomputer = new BusinessDeadlineRecomputer<Integer>(2, 10, 100, change -> { })
+                .setFailureListener((key, exception) -> failedKeys.add(key));
+        recomputer.submit(closed, 1, LocalDateTime.of(2023, 9, 4, 8, 0), Duration.ofHours(1), null);
+        recomputer.close();
+
+        assertEquals(1, recomputer.getProgress().getFailed());
+        assertEquals(Arrays.asList(1), failedKeys);
+    }
+
+    @Test
+    public void testThrowingSinkAndListenerDoNotStallBatches() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), new TreeSet<>());
+        BusinessHoursCalculator closed = new BusinessHoursCalculator(new BusinessWeek(), new TreeSet<>());
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger calls = new AtomicInteger();
+        BusinessDeadlineRecomputer<Integer> recomputer = new BusinessDeadlineRecomputer<Integer>(2, 4, 4, change -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new IllegalStateException("sink is down");
+            }
+            delivered.incrementAndGet();
+        }).setFailureListener((key, exception) -> {
+            throw new IllegalStateException("listener is down too");
+        });
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 9, 0);
+        for (int ticket = 0; ticket < 4; ticket++) {
+            recomputer.submit(calculator, ticket, start, Duration.ofHours(ticket + 1), null);
+        }
+        assertTrue(recomputer.awaitCompletion(2, TimeUnit.SECONDS), recomputer.getProgress().toString());
+        recomputer.submit(closed, 4, start, Duration.ofHours(1), null);
+        recomputer.close();
+
+        RecomputeProgress finished = recomputer.getProgress();
+        assertEquals(5, finished.getCompleted());
+        assertEquals(3, finished.getChanged());
+        assertEquals(2, finished.getFailed());
+        assertEquals(3, delivered.get());
+    }
+}
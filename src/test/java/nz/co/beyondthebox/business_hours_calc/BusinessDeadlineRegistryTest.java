@@ -0,0 +1,96 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BusinessDeadlineRegistryTest {
+
+    private BusinessHolidayStore holidays;
+    private BusinessDeadlineRegistry<String> registry;
+
+    @BeforeEach
+    public void setUp() {
+        holidays = new BusinessHolidayStore();
+        registry = new BusinessDeadlineRegistry<>(new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), holidays));
+    }
+
+    @Test
+    public void testOnlyDeadlinesSpanningTheHolidayAreRecomputed() {
+        // Monday 2023-09-04 8:00, deadlines on Tuesday, Friday and the following Friday
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);
+        assertEquals(LocalDateTime.of(2023, 9, 5, 17, 0), registry.register("short", start, Duration.ofHours(16)));
+        assertEquals(LocalDateTime.of(2023, 9, 8, 17, 0), registry.register("week", start, Duration.ofHours(40)));
+        assertEquals(LocalDateTime.of(2023, 9, 15, 17, 0), registry.register("later", LocalDateTime.of(2023, 9, 11, 8, 0), Duration.ofHours(40)));
+
+        List<DeadlineChange<String>> changes = new ArrayList<>();
+        registry.addChangeListener(changes::add);
+        holidays.add(LocalDate.of(2023, 9, 6));  // Wednesday
+
+        assertEquals(1, changes.size());
+        assertEquals("week", changes.get(0).getKey());
+        assertEquals(LocalDateTime.of(2023, 9, 8, 17, 0), changes.get(0).getPreviousDeadline());
+        assertEquals(LocalDateTime.of(2023, 9, 11, 17, 0), changes.get(0).getDeadline());
+        assertEquals(Duration.ofDays(3), changes.get(0).getShift());
+        assertEquals(LocalDateTime.of(2023, 9, 11, 17, 0), registry.getDeadline("week"));
+        assertEquals(LocalDateTime.of(2023, 9, 5, 17, 0), registry.getDeadline("short"));
+
+        // The moved deadline is indexed by its new window, which now reaches the following Monday
+        holidays.add(LocalDate.of(2023, 9, 11));
+        assertEquals(LocalDateTime.of(2023, 9, 12, 17, 0), registry.getDeadline("week"));
+        assertEquals(LocalDateTime.of(2023, 9, 18, 17, 0), registry.getDeadline("later"));
+        assertEquals(3, changes.size());
+
+        holidays.remove(LocalDate.of(2023, 9, 6));
+        assertEquals(LocalDateTime.of(2023, 9, 8, 17, 0), registry.getDeadline("week"));
+        assertEquals(LocalDateTime.of(2023, 9, 18, 17, 0), registry.getDeadline("later"));
+    }
+
+    @Test
+    public void testManualRecomputeAndUnregister() {
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);
+        registry.register("ticket", start, Duration.ofHours(8));
+
+        assertTrue(registry.recompute(LocalDate.of(2023, 9, 1), LocalDate.of(2023, 9, 30)).isEmpty());
+        assertTrue(registry.unregister("ticket"));
+        assertFalse(registry.unregister("ticket"));
+        assertNull(registry.getDeadline("ticket"));
+        assertEquals(0, registry.size());
+
+        registry.close();
+        registry.register("ticket", start, Duration.ofHours(8));
+        holidays.add(LocalDate.of(2023, 9, 4));
+        assertEquals(LocalDateTime.of(2023, 9, 4, 17, 0), registry.getDeadline("ticket"));
+    }
+
+    @Test
+    public void testIntervalTreeFindsOverlaps() {
+        DateIntervalTree<Integer> tree = new DateIntervalTree<>();
+        List<DateIntervalTree.Node<Integer>> nodes = new ArrayList<>();
+        LocalDate base = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < 500; i++) {
+            nodes.add(tree.insert(base.plusDays(i), base.plusDays(i + (i % 17)), i));
+        }
+        for (int i = 0; i < 500; i += 3) {
+            tree.remove(nodes.get(i));
+        }
+
+        LocalDate from = base.plusDays(200);
+        LocalDate to = base.plusDays(210);
+        Set<Integer> found = new HashSet<>();
+        tree.forEachOverlapping(from, to, node -> found.add(node.getValue()));
+
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            if (i % 3 != 0 && i <= 210 && i + (i % 17) >= 200) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, found);
+        assertEquals(333, tree.size());
+    }
+}
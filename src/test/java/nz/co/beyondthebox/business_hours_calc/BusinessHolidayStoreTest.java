@@ -0,0 +1,87 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BusinessHolidayStoreTest {
+
+    @Test
+    public void testChangesArePublishedAsNewVersions() {
+        BusinessHolidayStore store = new BusinessHolidayStore(BusinessHolidays.DEFAULT());
+        BusinessHolidaySnapshot before = store.getSnapshot();
+        List<HolidayChange> changes = new ArrayList<>();
+        store.addChangeListener(changes::add);
+
+        assertTrue(store.addAll(List.of(LocalDate.of(2023, 12, 25), LocalDate.of(2024, 1, 1))));
+        // Adding an existing holiday is not a change
+        assertFalse(store.add(LocalDate.of(2023, 10, 23)));
+        assertTrue(store.remove(LocalDate.of(2023, 10, 23)));
+
+        assertEquals(0, before.getVersion());
+        assertEquals(Set.of(LocalDate.of(2023, 10, 23)), before.getHolidays());
+        assertEquals(2, store.getVersion());
+        assertEquals(2, changes.size());
+        assertEquals(LocalDate.of(2023, 12, 25), changes.get(0).getFromDate());
+        assertEquals(LocalDate.of(2024, 1, 1), changes.get(0).getToDate());
+        assertTrue(changes.get(0).affectsYear(2024));
+        assertFalse(changes.get(1).affectsYear(2024));
+    }
+
+    @Test
+    public void testSnapshotsAreUnaffectedByConcurrentChanges() {
+        BusinessHolidayStore store = new BusinessHolidayStore();
+        store.add(LocalDate.of(2023, 1, 2));
+        BusinessHolidaySnapshot snapshot = store.getSnapshot();
+
+        Iterator<LocalDate> iterator = snapshot.getHolidays().iterator();
+        store.add(LocalDate.of(2023, 1, 3));
+
+        assertEquals(LocalDate.of(2023, 1, 2), iterator.next());
+        assertFalse(iterator.hasNext());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getHolidays().add(LocalDate.of(2023, 1, 4)));
+    }
+
+    @Test
+    public void testHasChangedBetweenOnlyReportsAffectedRanges() {
+        BusinessHolidayStore store = new BusinessHolidayStore();
+        store.add(LocalDate.of(2023, 6, 1));
+        store.add(LocalDate.of(2024, 6, 1));
+
+        assertTrue(store.hasChangedBetween(0, 2, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+        assertFalse(store.hasChangedBetween(1, 2, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+        assertTrue(store.hasChangedBetween(1, 2, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+        assertFalse(store.hasChangedBetween(2, 2, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    public void testCalculatorSeesPublishedHolidays() {
+        BusinessHolidayStore store = new BusinessHolidayStore();
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), store);
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);  // It's a Monday
+        LocalDateTime end = LocalDateTime.of(2024, 9, 2, 8, 0);
+        List<BusinessInterval> intervals = List.of(new BusinessInterval(start, end));
+
+        Duration before = calculator.calculateCoveredDuration(intervals);
+        store.add(LocalDate.of(2024, 2, 6));  // A Tuesday
+
+        assertEquals(before.minusHours(8), calculator.calculateCoveredDuration(intervals));
+        assertEquals(LocalDateTime.of(2023, 9, 5, 17, 0), calculator.addBusinessHours(start, Duration.ofHours(16)));
+        store.add(LocalDate.of(2023, 9, 5));
+        assertEquals(LocalDateTime.of(2023, 9, 6, 17, 0), calculator.addBusinessHours(start, Duration.ofHours(16)));
+        assertEquals(before.minusHours(16), calculator.calculateCoveredDuration(intervals));
+    }
+
+    @Test
+    public void testCalculatorCopiesHolidaySet() {
+        TreeSet<LocalDate> holidays = new TreeSet<>();
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), holidays);
+        holidays.add(LocalDate.of(2023, 9, 4));
+
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);
+        assertEquals(LocalDateTime.of(2023, 9, 4, 17, 0), calculator.addBusinessHours(start, Duration.ofHours(8)));
+    }
+}
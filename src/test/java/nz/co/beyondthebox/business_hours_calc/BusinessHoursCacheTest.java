@@ -0,0 +1,101 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BusinessHoursCacheTest {
+
+    private BusinessHolidayStore holidays;
+    private BusinessHoursCalculator calculator;
+
+    @BeforeEach
+    public void setUp() {
+        holidays = new BusinessHolidayStore(BusinessHolidays.DEFAULT());
+        calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), holidays);
+    }
+
+    @Test
+    public void testRepeatedQueriesAreServedFromTheCache() {
+        BusinessHoursCache cache = new BusinessHoursCache(calculator, 1000);
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 9, 0);  // It's a Monday
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(LocalDateTime.of(2023, 9, 5, 9, 0), cache.addBusinessHours(start, Duration.ofHours(8)));
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(9, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testHolidayChangesOnlyInvalidateOverlappingEntries() {
+        BusinessHoursCache cache = new BusinessHoursCache(calculator, 1000);
+        LocalDateTime monday = LocalDateTime.of(2023, 9, 4, 9, 0);
+        LocalDateTime nextMonday = LocalDateTime.of(2023, 9, 11, 9, 0);
+        cache.addBusinessHours(monday, Duration.ofHours(8));
+        cache.addBusinessHours(nextMonday, Duration.ofHours(8));
+
+        holidays.add(LocalDate.of(2023, 9, 12));
+
+        assertEquals(LocalDateTime.of(2023, 9, 5, 9, 0), cache.addBusinessHours(monday, Duration.ofHours(8)));
+        assertEquals(LocalDateTime.of(2023, 9, 13, 9, 0), cache.addBusinessHours(nextMonday, Duration.ofHours(8)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        BusinessHoursCache cache = new BusinessHoursCache(calculator, 16);
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 9, 0);
+        for (int i = 0; i < 200; i++) {
+            cache.addBusinessHours(start.plusHours(i), Duration.ofHours(4));
+        }
+        assertTrue(cache.size() <= 16);
+        assertEquals(200 - cache.size(), cache.getEvictionCount());
+    }
+
+    @Test
+    public void testSubSecondQueriesBypassTheCache() {
+        BusinessHoursCache cache = new BusinessHoursCache(calculator, 100);
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 9, 0, 0, 500);
+        assertEquals(calculator.addBusinessHours(start, Duration.ofHours(1)), cache.addBusinessHours(start, Duration.ofHours(1)));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        BusinessHoursCache cache = new BusinessHoursCache(calculator, 64);
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int task = 0; task < 8; task++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        LocalDateTime taskStart = start.plusHours(i % 100);
+                        Duration duration = Duration.ofHours(4 + 4 * (i % 3));
+                        if (!calculator.addBusinessHours(taskStart, duration).equals(cache.addBusinessHours(taskStart, duration))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(16000, cache.getHitCount() + cache.getMissCount());
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import java.time.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -772,4 +773,344 @@ public class BusinessHoursCalculatorTest {
         Duration expected = Duration.ofHours(64);
         assertEquals(expected, calc.calculateWorkingDurationBetween(start, end));
     }
+
+    @Test
+    public void testCalculateCoverageOfOverlappingIntervals() {
+        List<BusinessInterval> intervals = List.of(
+                new BusinessInterval(LocalDateTime.of(2023, 9, 4, 9, 0), LocalDateTime.of(2023, 9, 4, 11, 0)),
+                new BusinessInterval(LocalDateTime.of(2023, 9, 4, 10, 0), LocalDateTime.of(2023, 9, 4, 14, 0))
+        );
+
+        BusinessCoverage coverage = calculator.calculateCoverage(intervals);
+
+        // 9:00 - 12:00 and 13:00 - 14:00 are covered, with both tickets open between 10:00 and 11:00
+        assertEquals(Duration.ofHours(4), coverage.getCoveredDuration());
+        assertEquals(Duration.ofHours(3), coverage.getDurationByConcurrency().get(1));
+        assertEquals(Duration.ofHours(1), coverage.getDurationByConcurrency().get(2));
+        assertEquals(2, coverage.getMaximumConcurrency());
+        assertEquals(Duration.ofHours(4), calculator.calculateCoveredDuration(intervals));
+    }
+
+    @Test
+    public void testCalculateCoverageAcrossWeekendAndHoliday() {
+        // Friday 16:00 through to Tuesday 9:00, with Monday 2023-10-23 being a holiday
+        BusinessInterval interval = new BusinessInterval(LocalDateTime.of(2023, 10, 20, 16, 0), LocalDateTime.of(2023, 10, 24, 9, 0));
+        List<BusinessInterval> intervals = List.of(interval, interval,
+                new BusinessInterval(LocalDateTime.of(2023, 10, 24, 9, 0), LocalDateTime.of(2023, 10, 24, 9, 0)));
+
+        BusinessCoverage coverage = calculator.calculateCoverage(intervals);
+
+        assertEquals(Duration.ofHours(2), coverage.getCoveredDuration());
+        assertEquals(Map.of(2, Duration.ofHours(2)), coverage.getDurationByConcurrency());
+        assertEquals(calculator.calculateWorkingDurationBetween(interval.getStartDateTime(), interval.getEndDateTime()),
+                coverage.getCoveredDuration());
+    }
+
+    @Test
+    public void testCalculateCoverageOfNoIntervals() {
+        BusinessCoverage coverage = calculator.calculateCoverage(List.of());
+        assertEquals(Duration.ZERO, coverage.getCoveredDuration());
+        assertEquals(0, coverage.getMaximumConcurrency());
+    }
+
+    @Test
+    public void testCompiledCalculationsMatchDayWalk() {
+        BusinessWeek overnight = new BusinessWeek()
+                .addDay(DayOfWeek.MONDAY, new BusinessDay(
+                        new BusinessShift(LocalTime.of(9, 0), LocalTime.of(17, 0)),
+                        new BusinessShift(LocalTime.of(23, 0), LocalTime.of(1, 0))))
+                .addDay(DayOfWeek.WEDNESDAY, new BusinessDay(
+                        new BusinessShift(LocalTime.of(6, 30), LocalTime.of(11, 15)),
+                        new BusinessShift(LocalTime.of(12, 0), LocalTime.of(14, 0))))
+                .addDay(DayOfWeek.SATURDAY, new BusinessDay(
+                        new BusinessShift(LocalTime.of(20, 0), LocalTime.of(4, 0))));
+        TreeSet<LocalDate> moreHolidays = BusinessHolidays.DEFAULT();
+        moreHolidays.add(LocalDate.of(2023, 12, 25));
+        moreHolidays.add(LocalDate.of(2024, 1, 1));
+        moreHolidays.add(LocalDate.of(2024, 1, 2));
+        List<BusinessHoursCalculator> calculators = List.of(
+                calculator,
+                new BusinessHoursCalculator(overnight, moreHolidays),
+                new BusinessHoursCalculator(BusinessWeekTemplate.DEFAULT(), moreHolidays));
+        List<Duration> minimums = Arrays.asList(null, Duration.ZERO, Duration.ofHours(6), Duration.ofMinutes(450), Duration.ofHours(9));
+
+        Random random = new Random(42);
+        for (int i = 0; i < 4000; i++) {
+            BusinessHoursCalculator calc = calculators.get(i % calculators.size());
+            Duration minimum = minimums.get(random.nextInt(minimums.size()));
+            LocalDateTime start = LocalDateTime.of(2023, 9, 1, 0, 0)
+                    .plusMinutes(random.nextInt(60 * 24 * 200))
+                    .plusSeconds(random.nextInt(4) == 0 ? random.nextInt(60) : 0);
+            Duration duration = Duration.ofMinutes(random.nextInt(4) == 0 ? 60L * random.nextInt(80) : random.nextInt(60 * 300));
+            LocalDateTime end = start.plusMinutes(random.nextInt(60 * 24 * 40));
+
+            assertEquals(calc.addBusinessHoursByDayWalk(start, duration, minimum), calc.addBusinessHours(start, duration, minimum),
+                    "add " + start + " " + duration + " " + minimum);
+            assertEquals(calc.calculateWorkingDurationBetweenByDayWalk(start, end, minimum), calc.calculateWorkingDurationBetween(start, end, minimum),
+                    "between " + start + " " + end + " " + minimum);
+        }
+    }
+
+    @Test
+    public void testCalculateWorkingDurationBetweenInsideLunchBreak() {
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 12, 15);
+        LocalDateTime end = LocalDateTime.of(2023, 9, 4, 12, 45);
+        assertEquals(Duration.ZERO, calculator.calculateWorkingDurationBetween(start, end));
+        assertEquals(Duration.ZERO, calculator.calculateWorkingDurationBetweenByDayWalk(start, end, null));
+    }
+
+    @Test
+    public void testAddBusinessHoursWithNoBusinessHoursFailsFast() {
+        BusinessHoursCalculator closed = new BusinessHoursCalculator(new BusinessWeek(), new TreeSet<>());
+        assertThrows(IllegalStateException.class, () -> closed.addBusinessHours(LocalDateTime.of(2023, 9, 4, 8, 0), Duration.ofHours(1)));
+        assertThrows(IllegalStateException.class, () -> closed.addBusinessHours(LocalDateTime.of(2023, 9, 4, 8, 0), Duration.ZERO));
+    }
+
+    @Test
+    public void testAddBusinessHoursStopsAtMaximumDaysScanned() {
+        TreeSet<LocalDate> closedForAMonth = new TreeSet<>();
+        for (LocalDate date = LocalDate.of(2023, 9, 1); date.isBefore(LocalDate.of(2023, 10, 1)); date = date.plusDays(1)) {
+            closedForAMonth.add(date);
+        }
+        BusinessHoursCalculator guarded = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), closedForAMonth)
+                .setMaximumDaysScanned(20);
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 8, 0);
+
+        assertThrows(IllegalStateException.class, () -> guarded.addBusinessHours(start, Duration.ofHours(1)));
+        assertThrows(IllegalStateException.class, () -> guarded.addBusinessHours(start, Duration.ZERO));
+        assertThrows(IllegalStateException.class, () -> guarded.addBusinessHoursByDayWalk(start, Duration.ofHours(1), null));
+        assertEquals(LocalDateTime.of(2023, 10, 2, 9, 0), guarded.setMaximumDaysScanned(40).addBusinessHours(start, Duration.ofHours(1)));
+    }
+
+    @Test
+    public void testFindContiguousSlot() {
+        LocalDateTime monday = LocalDateTime.of(2023, 9, 4, 10, 0);
+        assertEquals(LocalDateTime.of(2023, 9, 4, 10, 0), calculator.findContiguousSlot(monday, Duration.ofHours(2)));
+        assertEquals(LocalDateTime.of(2023, 9, 4, 13, 0), calculator.findContiguousSlot(monday, Duration.ofHours(3)));
+        assertEquals(LocalDateTime.of(2023, 9, 5, 8, 0), calculator.findContiguousSlot(monday.withHour(14), Duration.ofHours(4)));
+        // The Monday after is a holiday
+        assertEquals(LocalDateTime.of(2023, 10, 24, 8, 0), calculator.findContiguousSlot(LocalDateTime.of(2023, 10, 20, 14, 0), Duration.ofHours(4)));
+        assertEquals(null, calculator.findContiguousSlot(monday, Duration.ofHours(5)));
+        assertThrows(IllegalArgumentException.class, () -> calculator.findContiguousSlot(monday, Duration.ofHours(-1)));
+    }
+
+    @Test
+    public void testFindContiguousSlotAcrossMidnight() {
+        Map<DayOfWeek, BusinessDay> overnight = new HashMap<>();
+        overnight.put(DayOfWeek.MONDAY, new BusinessDay(new BusinessShift(LocalTime.of(9, 0), LocalTime.of(12, 0)),
+                new BusinessShift(LocalTime.of(22, 0), LocalTime.of(6, 0))));
+        overnight.put(DayOfWeek.WEDNESDAY, new BusinessDay(new BusinessShift(LocalTime.of(20, 0), LocalTime.of(0, 0))));
+        BusinessHoursCalculator nights = new BusinessHoursCalculator(overnight, new TreeSet<>(Arrays.asList(LocalDate.of(2023, 9, 12))));
+
+        LocalDateTime monday = LocalDateTime.of(2023, 9, 4, 10, 0);
+        assertEquals(LocalDateTime.of(2023, 9, 4, 22, 0), nights.findContiguousSlot(monday, Duration.ofHours(7)));
+        assertEquals(LocalDateTime.of(2023, 9, 5, 1, 0), nights.findContiguousSlot(LocalDateTime.of(2023, 9, 5, 1, 0), Duration.ofHours(5)));
+        assertEquals(LocalDateTime.of(2023, 9, 6, 20, 0), nights.findContiguousSlot(LocalDateTime.of(2023, 9, 5, 3, 0), Duration.ofHours(4)));
+        // Tuesday the 12th is a holiday, so the night of the 11th stops at midnight
+        assertEquals(LocalDateTime.of(2023, 9, 18, 22, 0), nights.findContiguousSlot(LocalDateTime.of(2023, 9, 5, 3, 0), Duration.ofHours(5)));
+        assertEquals(null, nights.findContiguousSlot(monday, Duration.ofHours(9)));
+
+        BusinessWeek allWeek = new BusinessWeek();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            allWeek.addDay(day, new BusinessDay(new BusinessShift(LocalTime.MIDNIGHT, LocalTime.MIDNIGHT)));
+        }
+        BusinessHoursCalculator aroundTheClock = new BusinessHoursCalculator(allWeek, new TreeSet<>(Arrays.asList(LocalDate.of(2023, 9, 10))));
+        assertEquals(LocalDateTime.of(2023, 9, 11, 0, 0), aroundTheClock.findContiguousSlot(monday, Duration.ofDays(30)));
+
+        // A holiday more than a week into the run still splits it
+        BusinessHoursCalculator twoHolidays = new BusinessHoursCalculator(allWeek, new TreeSet<>(Arrays.asList(LocalDate.of(2023, 9, 10), LocalDate.of(2023, 9, 20))));
+        assertEquals(LocalDateTime.of(2023, 9, 21, 0, 0), twoHolidays.findContiguousSlot(monday, Duration.ofDays(30)));
+        assertEquals(LocalDateTime.of(2023, 9, 11, 0, 0), twoHolidays.findContiguousSlot(monday, Duration.ofDays(9)));
+        assertEquals(Duration.ofDays(30), twoHolidays.calculateWorkingDurationBetween(LocalDateTime.of(2023, 9, 21, 0, 0), LocalDateTime.of(2023, 10, 21, 0, 0)));
+    }
+
+    @Test
+    public void testFindContiguousSlotMatchesProbing() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = LocalDateTime.of(2023, 10, 16, 0, 0).plusMinutes(15L * random.nextInt(4 * 24 * 10));
+            Duration duration = Duration.ofMinutes(15L * (1 + random.nextInt(16)));
+            LocalDateTime probe = start;
+            while (!calculator.calculateWorkingDurationBetween(probe, probe.plus(duration)).equals(duration)) {
+                probe = probe.plusMinutes(15);
+            }
+            assertEquals(probe, calculator.findContiguousSlot(start, duration), start + " " + duration);
+        }
+    }
+
+    @Test
+    public void testSubSecondShiftsMatchDayWalk() {
+        Map<DayOfWeek, BusinessDay> tradingDays = new HashMap<>();
+        for (DayOfWeek day : EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY)) {
+            tradingDays.put(day, new BusinessDay(
+                    new BusinessShift(LocalTime.of(9, 30, 0, 250_000_000), LocalTime.of(12, 0, 0, 125_000)),
+                    new BusinessShift(LocalTime.of(13, 0, 0, 999_999_999), LocalTime.of(16, 0, 0, 1))));
+        }
+        BusinessHoursCalculator trading = new BusinessHoursCalculator(tradingDays, holidays);
+        assertEquals(Duration.ofMinutes(330).minusMillis(250).plusNanos(125_000).minusNanos(999_999_998),
+                tradingDays.get(DayOfWeek.MONDAY).getBusinessDayLength());
+
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            Duration minimum = random.nextInt(3) == 0 ? Duration.ofHours(6).plusMillis(random.nextInt(1000)) : null;
+            LocalDateTime start = LocalDateTime.of(2023, 9, 1, 0, 0).plusNanos(random.nextLong() % (Duration.ofDays(60).toNanos() / 2) + Duration.ofDays(30).toNanos());
+            Duration duration = Duration.ofMillis(random.nextInt(1000 * 60 * 60 * 40)).plusNanos(random.nextInt(1_000_000));
+            LocalDateTime end = start.plusNanos(Math.abs(random.nextLong()) % Duration.ofDays(20).toNanos());
+
+            assertEquals(trading.addBusinessHoursByDayWalk(start, duration, minimum), trading.addBusinessHours(start, duration, minimum),
+                    "add " + start + " " + duration + " " + minimum);
+            assertEquals(trading.calculateWorkingDurationBetweenByDayWalk(start, end, minimum), trading.calculateWorkingDurationBetween(start, end, minimum),
+                    "between " + start + " " + end + " " + minimum);
+        }
+    }
+
+    @Test
+    public void testWeekIsCopiedAtConstruction() {
+        BusinessWeek businessWeek = new BusinessWeek().initialiseDefault();
+        BusinessHoursCalculator frozen = new BusinessHoursCalculator(businessWeek, new TreeSet<>());
+        businessWeek.addShiftToDay(DayOfWeek.SATURDAY, new BusinessShift(LocalTime.of(9, 0), LocalTime.of(17, 0)));
+        businessWeek.getBusinessDays().get(DayOfWeek.MONDAY).addShift(new BusinessShift(LocalTime.of(18, 0), LocalTime.of(20, 0)));
+
+        LocalDateTime friday = LocalDateTime.of(2023, 9, 8, 17, 0);
+        assertEquals(LocalDateTime.of(2023, 9, 11, 17, 0), frozen.addBusinessHours(friday, Duration.ofHours(8)));
+        assertEquals(LocalDateTime.of(2023, 9, 11, 17, 0), frozen.addBusinessHoursByDayWalk(friday, Duration.ofHours(8), null));
+        assertEquals(Duration.ofHours(8), frozen.calculateWorkingDurationBetweenByDayWalk(friday, friday.plusDays(3).plusHours(4), null));
+    }
+
+    @Test
+    public void testFixedPointTimes() {
+        long monday = LocalDateTime.of(2023, 9, 4, 11, 59, 59, 999_000_000).toInstant(ZoneOffset.UTC).toEpochMilli();
+        long expected = LocalDateTime.of(2023, 9, 4, 13, 0, 0, 1_000_000).toInstant(ZoneOffset.UTC).toEpochMilli();
+        assertEquals(expected, calculator.addBusinessTime(monday, 2, TimeUnit.MILLISECONDS));
+        assertEquals(2, calculator.calculateWorkingTimeBetween(monday, expected, TimeUnit.MILLISECONDS));
+        assertEquals(2_999, calculator.calculateWorkingTimeBetween(monday * 1000, expected * 1000 + 999, TimeUnit.MICROSECONDS));
+        assertEquals(1, calculator.calculateWorkingTimeBetween(monday / 1000, expected / 1000, TimeUnit.SECONDS));
+
+        Map<DayOfWeek, BusinessDay> oddDays = new HashMap<>();
+        oddDays.put(DayOfWeek.MONDAY, new BusinessDay(new BusinessShift(LocalTime.of(9, 0, 0, 500), LocalTime.of(17, 0))));
+        BusinessHoursCalculator odd = new BusinessHoursCalculator(oddDays);
+        long start = LocalDateTime.of(2023, 9, 4, 8, 0).toEpochSecond(ZoneOffset.UTC);
+        // The shift opens 500ns after 9:00, so an hour later is just past 10:00 and rounds up to the next second
+        assertEquals(LocalDateTime.of(2023, 9, 4, 10, 0, 1).toEpochSecond(ZoneOffset.UTC), odd.addBusinessTime(start, 3600, TimeUnit.SECONDS));
+        assertEquals(8 * 60 - 1, odd.calculateWorkingTimeBetween(start, start + TimeUnit.DAYS.toSeconds(1), TimeUnit.SECONDS) / 60);
+        assertEquals(LocalDateTime.of(2023, 9, 11, 9, 0, 0, 500), odd.addBusinessHours(LocalDateTime.of(2023, 9, 4, 17, 0), Duration.ZERO.plusNanos(1)).minusNanos(1));
+    }
+
+    @Test
+    public void testFixedPointTimesMatchDateTimes() {
+        holidays.add(LocalDate.of(1969, 12, 25));
+        holidays.add(LocalDate.of(2023, 12, 25));
+        calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), holidays);
+        Random random = new Random(37);
+        for (TimeUnit unit : new TimeUnit[]{TimeUnit.NANOSECONDS, TimeUnit.MILLISECONDS, TimeUnit.SECONDS, TimeUnit.MINUTES}) {
+            for (int i = 0; i < 500; i++) {
+                LocalDateTime start = LocalDateTime.of(random.nextBoolean() ? 1969 : 2023, 12, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 60));
+                LocalDateTime end = start.plusMinutes(random.nextInt(60 * 24 * 40));
+                long startTime = unit.convert(start.toEpochSecond(ZoneOffset.UTC), TimeUnit.SECONDS);
+                long endTime = unit.convert(end.toEpochSecond(ZoneOffset.UTC), TimeUnit.SECONDS);
+                long duration = unit.convert(1 + random.nextInt(60 * 80), TimeUnit.MINUTES);
+                LocalDateTime deadline = calculator.addBusinessHours(start, Duration.of(duration, unit.toChronoUnit()));
+                assertEquals(unit.convert(deadline.toEpochSecond(ZoneOffset.UTC), TimeUnit.SECONDS), calculator.addBusinessTime(startTime, duration, unit));
+                assertEquals(unit.convert(calculator.calculateWorkingDurationBetween(start, end)), calculator.calculateWorkingTimeBetween(startTime, endTime, unit));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> calculator.calculateWorkingTimeBetween(1, 0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBusinessEpochMapping() {
+        assertEquals(0, calculator.toBusinessEpoch(LocalDateTime.of(1970, 1, 1, 8, 0)));
+        assertEquals(Duration.ofHours(4).toNanos(), calculator.toBusinessEpoch(LocalDateTime.of(1970, 1, 1, 12, 30)));
+        assertEquals(-Duration.ofHours(8).toNanos(), calculator.toBusinessEpoch(LocalDateTime.of(1969, 12, 31, 8, 0)));
+        assertEquals(LocalDateTime.of(1970, 1, 1, 12, 0), calculator.fromBusinessEpoch(Duration.ofHours(4).toNanos()));
+        assertEquals(LocalDateTime.of(1969, 12, 31, 17, 0), calculator.fromBusinessEpoch(0));
+
+        TreeSet<LocalDate> moreHolidays = new TreeSet<>(holidays);
+        moreHolidays.addAll(Arrays.asList(LocalDate.of(1969, 12, 25), LocalDate.of(2023, 9, 5), LocalDate.of(2023, 9, 6), LocalDate.of(2024, 1, 1)));
+        BusinessHoursCalculator withHolidays = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), moreHolidays);
+        Random random = new Random(17);
+        for (int i = 0; i < 2000; i++) {
+            BusinessHoursCalculator calc = i % 2 == 0 ? calculator : withHolidays;
+            LocalDateTime start = LocalDateTime.of(2023, 8, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 200));
+            LocalDateTime end = start.plusMinutes(random.nextInt(60 * 24 * 30));
+            Duration duration = Duration.ofMinutes(1 + random.nextInt(60 * 200));
+
+            assertEquals(calc.calculateWorkingDurationBetween(start, end).toNanos(), calc.toBusinessEpoch(end) - calc.toBusinessEpoch(start),
+                    start + " " + end);
+            assertEquals(calc.addBusinessHours(start, duration), calc.fromBusinessEpoch(calc.toBusinessEpoch(start) + duration.toNanos()),
+                    start + " " + duration);
+        }
+
+        // Holidays published after the index was built are picked up
+        long before = withHolidays.toBusinessEpoch(LocalDateTime.of(2023, 9, 30, 0, 0));
+        withHolidays.getHolidayStore().add(LocalDate.of(2023, 9, 29));
+        assertEquals(before - Duration.ofHours(8).toNanos(), withHolidays.toBusinessEpoch(LocalDateTime.of(2023, 9, 30, 0, 0)));
+        assertThrows(IllegalStateException.class, () -> new BusinessHoursCalculator(new BusinessWeek()).fromBusinessEpoch(0));
+
+        // Holidays before 1970 move the day earlier, so the search has to look back as far as it looks forward
+        TreeSet<LocalDate> december1969 = new TreeSet<>();
+        for (LocalDate date = LocalDate.of(1969, 12, 1); december1969.size() < 20; date = date.plusDays(1)) {
+            if (date.getDayOfWeek().getValue() <= 5) {
+                december1969.add(date);
+            }
+        }
+        BusinessHoursCalculator before1970 = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), december1969);
+        LocalDateTime november = LocalDateTime.of(1969, 11, 25, 10, 0);
+        assertEquals(november, before1970.fromBusinessEpoch(before1970.toBusinessEpoch(november)));
+    }
+
+    @Test
+    public void testAdaptiveStrategies() {
+        Map<DayOfWeek, BusinessDay> split = BusinessWeekTemplate.DEFAULT();
+        split.put(DayOfWeek.WEDNESDAY, new BusinessDay(
+                new BusinessShift(LocalTime.of(8, 0), LocalTime.of(12, 0)),
+                new BusinessShift(LocalTime.of(13, 0), LocalTime.of(15, 30))));
+        TreeSet<LocalDate> moreHolidays = new TreeSet<>(holidays);
+        moreHolidays.add(LocalDate.of(2023, 12, 25));
+        moreHolidays.add(LocalDate.of(2024, 1, 1));
+        BusinessHoursCalculator adaptive = new BusinessHoursCalculator(split, moreHolidays);
+        Random random = new Random(44);
+        for (long shiftWalkDays : new long[]{0, 14, Long.MAX_VALUE}) {
+            adaptive.setShiftWalkDays(shiftWalkDays);
+            for (int i = 0; i < 300; i++) {
+                LocalDateTime start = LocalDateTime.of(2023, 6, 1, 0, 0).plusMinutes(random.nextInt(60 * 24 * 365));
+                Duration duration = Duration.ofMinutes(random.nextInt(60 * 24 * 10) + 1);
+                Duration minimum = random.nextInt(4) == 0 ? Duration.ofHours(8) : null;
+                assertEquals(adaptive.addBusinessHoursByDayWalk(start, duration, minimum), adaptive.addBusinessHours(start, duration, minimum));
+                LocalDateTime end = start.plusMinutes(random.nextInt(60 * 24 * 60));
+                assertEquals(adaptive.calculateWorkingDurationBetweenByDayWalk(start, end, minimum), adaptive.calculateWorkingDurationBetween(start, end, minimum));
+            }
+        }
+
+        BusinessHoursCalculator counted = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), holidays).setShiftWalkDays(14);
+        LocalDateTime start = LocalDateTime.of(2023, 10, 20, 10, 0);
+        counted.addBusinessHours(start, Duration.ofHours(4));
+        counted.addBusinessHours(start, Duration.ofHours(400));
+        counted.addBusinessHours(start, Duration.ofHours(400), Duration.ofHours(9));
+        counted.addBusinessHours(start, Duration.ZERO);
+        counted.calculateWorkingDurationBetween(start, start.plusDays(3));
+        assertEquals(2, counted.getStrategyCount(BusinessHoursStrategy.SHIFT_WALK));
+        assertEquals(1, counted.getStrategyCount(BusinessHoursStrategy.EPOCH_INDEX));
+        assertEquals(1, counted.getStrategyCount(BusinessHoursStrategy.YEAR_INDEX));
+        assertEquals(1, counted.getStrategyCount(BusinessHoursStrategy.DAY_WALK));
+        assertEquals(5, counted.getStrategyCounts().values().stream().mapToLong(Long::longValue).sum());
+
+        // Far from 1970 the business epoch of a calendar open nearly all day would overflow, so those calls keep off it
+        Map<DayOfWeek, BusinessDay> nearlyAlwaysOpen = new HashMap<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            nearlyAlwaysOpen.put(day, new BusinessDay(new BusinessShift(LocalTime.of(0, 0), LocalTime.of(23, 0))));
+        }
+        BusinessHoursCalculator farFuture = new BusinessHoursCalculator(nearlyAlwaysOpen, new TreeSet<>(Set.of(LocalDate.of(2400, 1, 5))));
+        LocalDateTime farStart = LocalDateTime.of(2400, 1, 1, 0, 0);
+        assertEquals(LocalDateTime.of(2400, 1, 19, 9, 0), farFuture.addBusinessHours(farStart, Duration.ofHours(400)));
+        assertEquals(farFuture.addBusinessHoursByDayWalk(farStart, Duration.ofHours(400), null), farFuture.addBusinessHours(farStart, Duration.ofHours(400)));
+        assertEquals(farFuture.calculateWorkingDurationBetweenByDayWalk(farStart, farStart.plusDays(40), null),
+                farFuture.calculateWorkingDurationBetween(farStart, farStart.plusDays(40)));
+        assertEquals(farFuture.addBusinessHoursByDayWalk(farStart.minusYears(800), Duration.ofHours(400), null),
+                farFuture.addBusinessHours(farStart.minusYears(800), Duration.ofHours(400)));
+
+        assertThrows(IllegalArgumentException.class, () -> counted.setShiftWalkDays(-1));
+        long calibrated = counted.calibrateStrategies().getShiftWalkDays();
+        assertEquals(true, calibrated >= 0 && calibrated <= 4096, "calibrated to " + calibrated);
+    }
 }
@@ -0,0 +1,69 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessHoursCursorTest {
+
+    private static BusinessHoursCalculator calculator() {
+        Map<DayOfWeek, BusinessDay> businessDays = BusinessWeekTemplate.DEFAULT();
+        businessDays.put(DayOfWeek.WEDNESDAY, new BusinessDay(
+                new BusinessShift(LocalTime.of(8, 0), LocalTime.of(12, 0)),
+                new BusinessShift(LocalTime.of(13, 0), LocalTime.of(17, 30))));
+        businessDays.put(DayOfWeek.SATURDAY, new BusinessDay(new BusinessShift(LocalTime.of(20, 0), LocalTime.MIDNIGHT)));
+        TreeSet<LocalDate> holidays = BusinessHolidays.DEFAULT();
+        holidays.add(LocalDate.of(2023, 12, 25));
+        holidays.add(LocalDate.of(2023, 12, 26));
+        holidays.add(LocalDate.of(2024, 1, 1));
+        return new BusinessHoursCalculator(businessDays, holidays);
+    }
+
+    @Test
+    public void testNearlyOrderedStream() {
+        BusinessHoursCalculator calculator = calculator();
+        // One cursor per stream, as mixing the ends of adds and betweens would send the end position back and forth
+        BusinessHoursCursor cursor = new BusinessHoursCursor(calculator);
+        BusinessHoursCursor betweenCursor = new BusinessHoursCursor(calculator);
+        Random random = new Random(45);
+        LocalDateTime time = LocalDateTime.of(2023, 9, 1, 0, 0);
+        for (int i = 0; i < 5_000; i++) {
+            time = time.plusMinutes(random.nextInt(90));
+            // Now and then an event turns up a little late
+            LocalDateTime start = random.nextInt(20) == 0 ? time.minusMinutes(random.nextInt(600)) : time;
+            // Deadlines with a few standard response times, so results mostly arrive in order as well
+            Duration duration = Duration.ofHours(4 * (1 + random.nextInt(2)));
+            assertEquals(calculator.addBusinessHours(start, duration), cursor.addBusinessHours(start, duration), start + " + " + duration);
+            LocalDateTime end = start.plusHours(30).plusMinutes(random.nextInt(30));
+            assertEquals(calculator.calculateWorkingDurationBetween(start, end), betweenCursor.calculateWorkingDurationBetween(start, end), start + " to " + end);
+            assertEquals(calculator.toBusinessEpoch(start), cursor.toBusinessEpoch(start));
+        }
+        assertTrue(cursor.getReseekCount() > 0 && cursor.getReseekCount() < 2_000, "reseeks " + cursor.getReseekCount());
+        assertTrue(betweenCursor.getReseekCount() > 0 && betweenCursor.getReseekCount() < 1_000, "reseeks " + betweenCursor.getReseekCount());
+    }
+
+    @Test
+    public void testJumpsAndHolidayChanges() {
+        BusinessHoursCalculator calculator = calculator();
+        BusinessHoursCursor cursor = new BusinessHoursCursor(calculator);
+        LocalDateTime start = LocalDateTime.of(2023, 12, 22, 16, 0);
+        assertEquals(calculator.addBusinessHours(start, Duration.ofHours(10)), cursor.addBusinessHours(start, Duration.ofHours(10)));
+        LocalDateTime later = start.plusYears(3);
+        assertEquals(calculator.addBusinessHours(later, Duration.ofHours(4_000)), cursor.addBusinessHours(later, Duration.ofHours(4_000)));
+        assertEquals(calculator.calculateWorkingDurationBetween(later, later.plusYears(2)), cursor.calculateWorkingDurationBetween(later, later.plusYears(2)));
+
+        calculator.getHolidayStore().add(LocalDate.of(2026, 12, 23));
+        assertEquals(calculator.addBusinessHours(later, Duration.ofHours(10)), cursor.addBusinessHours(later, Duration.ofHours(10)));
+        assertEquals(calculator.calculateWorkingDurationBetween(later.minusDays(5), later.plusDays(5)),
+                cursor.calculateWorkingDurationBetween(later.minusDays(5), later.plusDays(5)));
+
+        assertEquals(calculator.addBusinessHours(start, Duration.ZERO), cursor.addBusinessHours(start, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> cursor.addBusinessHours(start, Duration.ofHours(-1)));
+        assertThrows(IllegalArgumentException.class, () -> cursor.calculateWorkingDurationBetween(later, start));
+    }
+}
@@ -0,0 +1,183 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessHoursServerTest {
+
+    private static HttpResponse<String> get(int port, String path) throws Exception {
+        return HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+        try (BusinessHoursServer server = new BusinessHoursServer(new InetSocketAddress("localhost", 0))
+                .addCalendar("wellington", calculator)
+                .addCalendar("head office", calculator)
+                .start()) {
+            int port = server.getPort();
+
+            HttpResponse<String> response = get(port, "/calendars/wellington/add?start=2023-10-20T15:00&duration=PT4H");
+            assertEquals(200, response.statusCode());
+            assertEquals("{\"result\":\"" + calculator.addBusinessHours(LocalDateTime.of(2023, 10, 20, 15, 0), Duration.ofHours(4)) + "\"}", response.body());
+            assertEquals("{\"result\":\"PT8H\"}", get(port, "/calendars/wellington/between?start=2023-10-23T00:00&end=2023-10-25T00:00").body());
+            assertEquals("{\"result\":\"" + calculator.calculateWorkingDurationBetween(LocalDateTime.of(2023, 10, 20, 0, 0), LocalDateTime.of(2023, 10, 20, 23, 0), Duration.ofHours(10)) + "\"}",
+                    get(port, "/calendars/wellington/between?start=2023-10-20T00:00&end=2023-10-20T23:00&minimum=PT10H").body());
+            assertEquals("{\"result\":true}", get(port, "/calendars/wellington/open?at=2023-10-20T10:30").body());
+            assertEquals("{\"result\":false}", get(port, "/calendars/wellington/open?at=2023-10-21T10:30").body());
+            assertEquals("{\"result\":\"PT8H\"}", get(port, "/calendars/head%20office/between?start=2023-10-23T00:00&end=2023-10-25T00:00").body());
+
+            assertEquals(404, get(port, "/calendars/auckland/open?at=2023-10-20T10:30").statusCode());
+            assertEquals(404, get(port, "/calendars/wellington/close?at=2023-10-20T10:30").statusCode());
+            assertEquals(400, get(port, "/calendars/wellington/open").statusCode());
+            assertEquals(400, get(port, "/calendars/wellington/add?start=tomorrow&duration=PT4H").statusCode());
+            assertEquals(400, get(port, "/calendars/wellington/between?start=2023-10-25T00:00&end=2023-10-23T00:00").statusCode());
+            assertEquals(400, get(port, "/calendars/wellington/add?start=2023-10-20T15:00&duration=-PT4H").statusCode());
+            assertTrue(get(port, "/calendars/wellington/open").body().contains("at is required."));
+        }
+    }
+
+    @Test
+    public void testLoadGenerator() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+        try (BusinessHoursServer server = new BusinessHoursServer(new InetSocketAddress("localhost", 0))
+                .addCalendar("wellington", calculator)
+                .addCalendar("auckland", new BusinessHoursCalculator(new BusinessWeek().initialiseDefault()))
+                .start()) {
+            LoadReport report = new BusinessHoursLoadGenerator(URI.create("http://localhost:" + server.getPort()), List.of("wellington", "auckland"))
+                    .setSeed(7)
+                    .run(2_000, 16);
+
+            assertEquals(2_000, report.getRequests());
+            assertEquals(0, report.getFailures());
+            assertEquals(2_000, server.getQueryCount());
+            assertTrue(report.getMaximumLatency().compareTo(report.getMeanLatency()) >= 0);
+        }
+    }
+
+    @Test
+    public void testBurstsAreCoalesced() throws Exception {
+        CountDownLatch evaluating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault()) {
+            @Override
+            public boolean isOpen(LocalDateTime dateTime) {
+                if (dateTime.getYear() == 2000) {
+                    // Hold the first batch so the burst queues up behind it
+                    evaluating.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.isOpen(dateTime);
+            }
+        };
+        try (BusinessHoursServer server = new BusinessHoursServer(new InetSocketAddress("localhost", 0))
+                .addCalendar("wellington", calculator)
+                .setMaximumBatchSize(2)
+                .start()) {
+            int port = server.getPort();
+            HttpClient client = HttpClient.newHttpClient();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/calendars/wellington/open?at=2000-01-03T10:00")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()));
+            assertTrue(evaluating.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < 40; i++) {
+                responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/calendars/wellington/between?start=2023-10-23T00:00&end=2023-10-25T00:00")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals("{\"result\":true}", responses.get(0).get(10, TimeUnit.SECONDS).body());
+            for (int i = 1; i < responses.size(); i++) {
+                assertEquals("{\"result\":\"PT16H\"}", responses.get(i).get(10, TimeUnit.SECONDS).body());
+            }
+            assertEquals(41, server.getQueryCount());
+            assertTrue(server.getBatchCount() < server.getQueryCount(), server.getBatchCount() + " batches");
+        }
+    }
+
+    @Test
+    public void testBurstsOnABoundedExecutor() throws Exception {
+        CountDownLatch evaluating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT()) {
+            @Override
+            public boolean isOpen(LocalDateTime dateTime) {
+                if (dateTime.getYear() == 2000) {
+                    // Hold the first batch so every handler thread ends up waiting on a queued query
+                    evaluating.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.isOpen(dateTime);
+            }
+        };
+        ExecutorService handlers = Executors.newFixedThreadPool(8);
+        try (BusinessHoursServer server = new BusinessHoursServer(new InetSocketAddress("localhost", 0))
+                .addCalendar("wellington", calculator)
+                .setExecutor(handlers)
+                .setMaximumBatchSize(1)
+                .start()) {
+            String base = "http://localhost:" + server.getPort() + "/calendars/wellington/";
+            HttpClient client = HttpClient.newHttpClient();
+            CompletableFuture<HttpResponse<String>> held = client.sendAsync(HttpRequest.newBuilder(URI.create(base + "open?at=2000-01-03T10:00")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertTrue(evaluating.await(10, TimeUnit.SECONDS));
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                responses.add(client.sendAsync(HttpRequest.newBuilder(URI.create(base + "add?start=2023-10-20T15:00&duration=PT" + (1 + i % 40) + "H")).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals("{\"result\":true}", held.get(30, TimeUnit.SECONDS).body());
+            for (int i = 0; i < responses.size(); i++) {
+                LocalDateTime expected = calculator.addBusinessHours(LocalDateTime.of(2023, 10, 20, 15, 0), Duration.ofHours(1 + i % 40));
+                assertEquals("{\"result\":\"" + expected + "\"}", responses.get(i).get(30, TimeUnit.SECONDS).body());
+            }
+            assertEquals(401, server.getQueryCount());
+        } finally {
+            handlers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLifecycle() throws Exception {
+        BusinessHoursServer server = new BusinessHoursServer(new InetSocketAddress("localhost", 0));
+        assertThrows(IllegalStateException.class, server::getPort);
+        assertThrows(IllegalArgumentException.class, () -> server.setMaximumBatchSize(0));
+        server.start();
+        try {
+            assertThrows(IllegalStateException.class, server::start);
+            assertThrows(IllegalStateException.class, () -> server.setExecutor(Runnable::run));
+        } finally {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessHoursShadowVerifierTest {
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2023, 9, 4, 8, 0);
+
+    @Test
+    public void testAgreeingCallsAreCounted() {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+        BusinessHoursShadowVerifier verifier = new BusinessHoursShadowVerifier(calculator, 1, Runnable::run);
+
+        for (int hours = 0; hours < 50; hours++) {
+            assertEquals(calculator.addBusinessHours(MONDAY, Duration.ofHours(hours)), verifier.addBusinessHours(MONDAY, Duration.ofHours(hours)));
+            assertEquals(calculator.calculateWorkingDurationBetween(MONDAY, MONDAY.plusDays(hours), Duration.ofHours(9)),
+                    verifier.calculateWorkingDurationBetween(MONDAY, MONDAY.plusDays(hours), Duration.ofHours(9)));
+        }
+
+        assertEquals(100, verifier.getSampledCount());
+        assertEquals(100, verifier.getVerifiedCount());
+        assertEquals(0, verifier.getMismatchCount());
+        assertEquals(0.0, verifier.getDisagreementRate());
+        assertTrue(verifier.getSpeedup() > 0);
+    }
+
+    @Test
+    public void testMismatchesAreCounted() {
+        BusinessHoursCalculator broken = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault()) {
+            @Override
+            public LocalDateTime addBusinessHours(LocalDateTime startDateTime, Duration duration, Duration minimumDurationPerDay) {
+                return super.addBusinessHours(startDateTime, duration, minimumDurationPerDay).plusMinutes(1);
+            }
+        };
+        BusinessHoursShadowVerifier verifier = new BusinessHoursShadowVerifier(broken, 1, Runnable::run);
+
+        verifier.addBusinessHours(MONDAY, Duration.ofHours(3));
+        verifier.calculateWorkingDurationBetween(MONDAY, MONDAY.plusDays(3));
+
+        assertEquals(2, verifier.getVerifiedCount());
+        assertEquals(1, verifier.getMismatchCount());
+        assertEquals(0.5, verifier.getDisagreementRate());
+    }
+
+    @Test
+    public void testSamplingAndDropping() throws Exception {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault());
+        BusinessHoursShadowVerifier never = new BusinessHoursShadowVerifier(calculator, 0, Runnable::run);
+        never.addBusinessHours(MONDAY, Duration.ofHours(3));
+        assertEquals(0, never.getSampledCount());
+
+        BusinessHoursShadowVerifier full = new BusinessHoursShadowVerifier(calculator, 1, runnable -> {
+            throw new RejectedExecutionException();
+        });
+        full.addBusinessHours(MONDAY, Duration.ofHours(3));
+        assertEquals(1, full.getSampledCount());
+        assertEquals(1, full.getDroppedCount());
+        assertEquals(0, full.getVerifiedCount());
+
+        try (BusinessHoursShadowVerifier background = new BusinessHoursShadowVerifier(calculator, 0.5)) {
+            for (int i = 0; i < 200; i++) {
+                background.addBusinessHours(MONDAY, Duration.ofMinutes(i));
+            }
+            background.close();
+            assertTrue(background.getSampledCount() > 0 && background.getSampledCount() < 200);
+            assertEquals(background.getSampledCount(), background.getVerifiedCount() + background.getDroppedCount() + background.getStaleCount());
+            assertEquals(0, background.getMismatchCount());
+        }
+    }
+
+    @Test
+    public void testHolidayChangesMakeSamplesStale() {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+        List<Runnable> pending = new ArrayList<>();
+        BusinessHoursShadowVerifier verifier = new BusinessHoursShadowVerifier(calculator, 1, pending::add);
+
+        LocalDateTime friday = LocalDateTime.of(2023, 10, 20, 15, 0);
+        verifier.addBusinessHours(friday, Duration.ofHours(4));
+        verifier.calculateWorkingDurationBetween(friday, friday.plusDays(5));
+        // The day walk would now see the new holiday and disagree with answers given before it was added
+        calculator.getHolidayStore().add(LocalDate.of(2023, 10, 24));
+        verifier.addBusinessHours(friday, Duration.ofHours(4));
+        pending.forEach(Runnable::run);
+
+        assertEquals(3, verifier.getSampledCount());
+        assertEquals(2, verifier.getStaleCount());
+        assertEquals(1, verifier.getVerifiedCount());
+        assertEquals(0, verifier.getMismatchCount());
+    }
+}
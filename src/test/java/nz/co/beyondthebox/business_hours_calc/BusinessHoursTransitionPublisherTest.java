@@ -0,0 +1,125 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessHoursTransitionPublisherTest {
+    private static final ZoneId ZONE = ZoneId.of("Pacific/Auckland");
+
+    private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+        private final List<T> items = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+
+    @Test
+    public void testNextTransition() {
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), BusinessHolidays.DEFAULT());
+        assertEquals(LocalDateTime.of(2023, 9, 4, 8, 0), calculator.nextTransition(LocalDateTime.of(2023, 9, 2, 10, 0)));
+        assertEquals(LocalDateTime.of(2023, 9, 4, 12, 0), calculator.nextTransition(LocalDateTime.of(2023, 9, 4, 8, 0)));
+        assertEquals(LocalDateTime.of(2023, 9, 4, 13, 0), calculator.nextTransition(LocalDateTime.of(2023, 9, 4, 12, 0)));
+        // Monday the 23rd of October is a holiday
+        assertEquals(LocalDateTime.of(2023, 10, 24, 8, 0), calculator.nextTransition(LocalDateTime.of(2023, 10, 20, 17, 0)));
+        assertTrue(calculator.isOpen(LocalDateTime.of(2023, 9, 4, 8, 0)));
+        assertTrue(!calculator.isOpen(LocalDateTime.of(2023, 9, 4, 12, 0)));
+
+        BusinessWeek allWeek = new BusinessWeek();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            allWeek.addDay(day, new BusinessDay(new BusinessShift(LocalTime.MIDNIGHT, LocalTime.MIDNIGHT)));
+        }
+        BusinessHoursCalculator aroundTheClock = new BusinessHoursCalculator(allWeek, new TreeSet<>(Arrays.asList(LocalDate.of(2030, 1, 1))));
+        assertEquals(LocalDateTime.of(2030, 1, 1, 0, 0), aroundTheClock.nextTransition(LocalDateTime.of(2023, 9, 4, 8, 0)));
+        assertEquals(LocalDateTime.of(2030, 1, 2, 0, 0), aroundTheClock.nextTransition(LocalDateTime.of(2030, 1, 1, 0, 0)));
+        assertEquals(null, aroundTheClock.nextTransition(LocalDateTime.of(2030, 1, 2, 0, 0)));
+        assertEquals(null, new BusinessHoursCalculator(new BusinessWeek()).nextTransition(LocalDateTime.of(2023, 9, 4, 8, 0)));
+    }
+
+    @Test
+    public void testPublishesTransitionsInOrderWithVirtualClock() throws Exception {
+        VirtualClock clock = new VirtualClock(LocalDateTime.of(2023, 9, 4, 7, 0).atZone(ZONE).toInstant(), ZONE);
+        BusinessHolidayStore holidays = new BusinessHolidayStore(new TreeSet<>());
+        Map<DayOfWeek, BusinessDay> lateDays = BusinessWeekTemplate.DEFAULT();
+        lateDays.put(DayOfWeek.MONDAY, new BusinessDay(new BusinessShift(LocalTime.of(10, 0), LocalTime.of(14, 0))));
+        RecordingSubscriber<BusinessHoursTransition<String>> subscriber = new RecordingSubscriber<>();
+
+        BusinessHoursTransitionPublisher<String> publisher = new BusinessHoursTransitionPublisher<>(clock);
+        publisher.subscribe(subscriber);
+        publisher.addCalendar("office", new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), holidays));
+        publisher.addCalendar("support", new BusinessHoursCalculator(lateDays, holidays));
+        assertEquals(LocalDateTime.of(2023, 9, 4, 8, 0), publisher.getNextTransition());
+
+        clock.advance(Duration.ofHours(6));
+        assertEquals(4, publisher.publishDue());
+        // Tuesday becomes a holiday before the publisher reaches it
+        holidays.add(LocalDate.of(2023, 9, 5));
+        clock.advance(Duration.ofHours(24));
+        assertEquals(2, publisher.publishDue());
+        publisher.close();
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+
+        List<String> published = new ArrayList<>();
+        for (BusinessHoursTransition<String> transition : subscriber.items) {
+            published.add(transition.toString());
+        }
+        assertEquals(Arrays.asList(
+                "office opens at 2023-09-04T08:00",
+                "support opens at 2023-09-04T10:00",
+                "office closes at 2023-09-04T12:00",
+                "office opens at 2023-09-04T13:00",
+                "support closes at 2023-09-04T14:00",
+                "office closes at 2023-09-04T17:00"), published);
+    }
+
+    @Test
+    public void testSchedulerThreadFollowsVirtualClock() throws Exception {
+        VirtualClock clock = new VirtualClock(LocalDateTime.of(2023, 9, 4, 7, 0).atZone(ZONE).toInstant(), ZONE);
+        RecordingSubscriber<BusinessHoursTransition<Integer>> subscriber = new RecordingSubscriber<>();
+
+        try (BusinessHoursTransitionPublisher<Integer> publisher = new BusinessHoursTransitionPublisher<>(clock)) {
+            publisher.subscribe(subscriber);
+            for (int calendar = 0; calendar < 1000; calendar++) {
+                publisher.addCalendar(calendar, new BusinessHoursCalculator(new BusinessWeek().initialiseDefault(), new TreeSet<>()));
+            }
+            publisher.start();
+            clock.advance(Duration.ofHours(1));
+            long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (subscriber.items.size() < 1000 && System.nanoTime() < waitUntil) {
+                Thread.sleep(5);
+            }
+            assertEquals(LocalDateTime.of(2023, 9, 4, 12, 0), publisher.getNextTransition());
+        }
+        assertEquals(1000, subscriber.items.size());
+        assertTrue(subscriber.items.get(0).isOpening());
+    }
+}
@@ -0,0 +1,111 @@
+package nz.co.beyondthebox.business_hours_calc;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusinessWeekBuilderTest {
+
+    @Test
+    public void testShiftsAreMergedInAnyOrder() {
+        BusinessWeek businessWeek = new BusinessWeekBuilder()
+                .addShift(DayOfWeek.MONDAY, LocalTime.of(13, 0), LocalTime.of(17, 0))
+                .addShift(DayOfWeek.MONDAY, LocalTime.of(8, 0), LocalTime.of(9, 0))
+                .addShift(DayOfWeek.MONDAY, LocalTime.of(8, 0), LocalTime.of(12, 0))
+                .addShift(DayOfWeek.MONDAY, LocalTime.of(12, 0), LocalTime.of(12, 30))
+                .addShift(DayOfWeek.MONDAY, LocalTime.of(18, 0), LocalTime.of(19, 0))
+                .addShift(DayOfWeek.MONDAY, LocalTime.of(18, 15), LocalTime.of(18, 45))
+                .build();
+
+        assertEquals(Arrays.asList("08:00-12:30", "13:00-17:00", "18:00-19:00"), describe(businessWeek.getBusinessDays().get(DayOfWeek.MONDAY)));
+        assertEquals(Duration.ofMinutes(9 * 60 + 30), businessWeek.getBusinessDays().get(DayOfWeek.MONDAY).getBusinessDayLength());
+    }
+
+    @Test
+    public void testShiftsAcrossMidnight() {
+        BusinessWeek businessWeek = new BusinessWeekBuilder()
+                .addShift(DayOfWeek.MONDAY, LocalTime.of(5, 0), LocalTime.of(9, 0))
+                .addShift(DayOfWeek.SUNDAY, LocalTime.of(22, 0), LocalTime.of(6, 0))
+                .addShift(DayOfWeek.WEDNESDAY, new BusinessShift(LocalTime.of(20, 0), LocalTime.MIDNIGHT))
+                .addShift(DayOfWeek.FRIDAY, LocalTime.of(9, 0), LocalTime.of(9, 0))
+                .build();
+
+        assertEquals(Arrays.asList("22:00-00:00"), describe(businessWeek.getBusinessDays().get(DayOfWeek.SUNDAY)));
+        assertEquals(Arrays.asList("00:00-09:00"), describe(businessWeek.getBusinessDays().get(DayOfWeek.MONDAY)));
+        assertEquals(Arrays.asList("20:00-00:00"), describe(businessWeek.getBusinessDays().get(DayOfWeek.WEDNESDAY)));
+        assertEquals(null, businessWeek.getBusinessDays().get(DayOfWeek.THURSDAY));
+        // A shift that ends as it starts is empty, except from midnight to midnight
+        assertEquals(null, businessWeek.getBusinessDays().get(DayOfWeek.FRIDAY));
+        assertEquals(null, businessWeek.getBusinessDays().get(DayOfWeek.SATURDAY));
+        assertEquals(Arrays.asList("00:00-00:00"), describe(new BusinessWeekBuilder()
+                .addShift(DayOfWeek.TUESDAY, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT).build().getBusinessDays().get(DayOfWeek.TUESDAY)));
+    }
+
+    @Test
+    public void testNormaliseKeepsBusinessTime() {
+        BusinessWeek week = new BusinessWeek()
+                .addDay(DayOfWeek.MONDAY, new BusinessDay(
+                        new BusinessShift(LocalTime.of(9, 0), LocalTime.of(17, 0)),
+                        new BusinessShift(LocalTime.of(20, 0), LocalTime.of(20, 0))))
+                .addDay(DayOfWeek.WEDNESDAY, new BusinessDay(new BusinessShift(LocalTime.MIDNIGHT, LocalTime.MIDNIGHT)));
+        BusinessHoursCalculator original = new BusinessHoursCalculator(week, new TreeSet<>());
+        BusinessHoursCalculator normalised = new BusinessHoursCalculator(week.normalise(), new TreeSet<>());
+
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 0, 0);
+        assertEquals(Duration.ofHours(32), original.calculateWorkingDurationBetweenByDayWalk(start, start.plusDays(7), null));
+        for (int hours = 0; hours < 24 * 14; hours += 5) {
+            LocalDateTime end = start.plusHours(hours);
+            assertEquals(original.calculateWorkingDurationBetweenByDayWalk(start, end, null), normalised.calculateWorkingDurationBetween(start, end));
+            assertEquals(original.calculateWorkingDurationBetween(start, end), normalised.calculateWorkingDurationBetween(start, end));
+        }
+    }
+
+    @Test
+    public void testNormalisedWeekWalksLikeCompiledWeek() {
+        BusinessWeek messy = new BusinessWeek()
+                .addDay(DayOfWeek.TUESDAY, new BusinessDay(
+                        new BusinessShift(LocalTime.of(9, 0), LocalTime.of(12, 0)),
+                        new BusinessShift(LocalTime.of(9, 0), LocalTime.of(10, 0)),
+                        new BusinessShift(LocalTime.of(11, 0), LocalTime.of(14, 0))))
+                .addDay(DayOfWeek.MONDAY, new BusinessDay(
+                        new BusinessShift(LocalTime.of(8, 0), LocalTime.of(12, 0)),
+                        new BusinessShift(LocalTime.of(23, 0), LocalTime.of(10, 0))));
+        BusinessWeek normalised = messy.normalise();
+        assertEquals(Arrays.asList("00:00-14:00"), describe(normalised.getBusinessDays().get(DayOfWeek.TUESDAY)));
+
+        BusinessHoursCalculator calculator = new BusinessHoursCalculator(normalised, new TreeSet<>());
+        LocalDateTime start = LocalDateTime.of(2023, 9, 4, 0, 0);
+        for (int hours = 0; hours < 24 * 14; hours += 5) {
+            LocalDateTime end = start.plusHours(hours);
+            assertEquals(calculator.calculateWorkingDurationBetweenByDayWalk(start, end, null), calculator.calculateWorkingDurationBetween(start, end));
+            assertEquals(calculator.addBusinessHoursByDayWalk(start, Duration.ofHours(hours), null), calculator.addBusinessHours(start, Duration.ofHours(hours)));
+        }
+        assertEquals(Duration.ofHours(4 + 1 + 14), calculator.calculateWorkingDurationBetween(start, start.plusDays(7)));
+    }
+
+    @Test
+    public void testBusinessDayKeepsShiftsSharingAStartTime() {
+        BusinessDay day = new BusinessDay(
+                new BusinessShift(LocalTime.of(9, 0), LocalTime.of(10, 0)),
+                new BusinessShift(LocalTime.of(9, 0), LocalTime.of(11, 0)),
+                new BusinessShift(LocalTime.of(9, 0), LocalTime.of(11, 0)));
+        assertEquals(2, day.getShifts().size());
+        assertEquals(Duration.ofHours(3), day.getBusinessDayLength());
+        assertTrue(day.isLastShift(new BusinessShift(LocalTime.of(9, 0), LocalTime.of(11, 0))));
+    }
+
+    private static List<String> describe(BusinessDay businessDay) {
+        List<String> shifts = new ArrayList<>();
+        for (BusinessShift shift : businessDay.getShifts()) {
+            shifts.add(shift.getStartTime() + "-" + shift.getEndTime());
+        }
+        return shifts;
+    }
+}